@@ -0,0 +1,70 @@
+package benchmarks;
+
+import cloudTrail.checkpoint.InMemoryCheckpointStore;
+import cloudTrail.pipeline.CloudTrailPipeline;
+import cloudTrail.pipeline.PipelineSettings;
+import cloudTrail.poller.PollerSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end throughput of {@link CloudTrailPipeline#get()}, from the poller to a handler doing nothing.
+ * Run with the gc profiler to get the allocation rate per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelineBenchmark {
+    private static final int EVENTS = 10_000;
+
+    @Param({"50"})
+    int pageSize;
+
+    @Param({"0", "5"})
+    long latencyMs;
+
+    @Param({"0.0", "0.01"})
+    double errorRate;
+
+    @Param({"1", "100"})
+    int batchSize;
+
+    private CloudTrailPipeline pipeline;
+
+    @Setup
+    public void setup() {
+        pipeline = new CloudTrailPipeline(
+                new SyntheticLookupEvents(pageSize, Duration.ofMillis(latencyMs), errorRate),
+                Mono::just,
+                PollerSettings.builder()
+                        .readAheadPages(2)
+                        .idleBackoff(Duration.ofMillis(1))
+                        .build(),
+                new InMemoryCheckpointStore(),
+                PipelineSettings.builder()
+                        .batchSize(batchSize)
+                        .batchLinger(Duration.ofMillis(10))
+                        .build()
+        );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public Event pipeline() {
+        return pipeline.get()
+                .take(EVENTS)
+                .blockLast(Duration.ofMinutes(1));
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import cloudTrail.poller.CloudTrailPoller;
+import cloudTrail.poller.PollerSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events per second delivered by {@link CloudTrailPoller} for a given demand.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PollerBenchmark {
+    private static final int EVENTS = 10_000;
+
+    @Param({"50"})
+    int pageSize;
+
+    @Param({"0", "5"})
+    long latencyMs;
+
+    @Param({"0.0", "0.01"})
+    double errorRate;
+
+    @Param({"1", "4"})
+    int readAheadPages;
+
+    /**
+     * Time the consumer spends on every page, read-ahead fetches the next pages meanwhile.
+     */
+    @Param({"0", "5"})
+    long handlerLatencyMs;
+
+    /**
+     * Number of messages requested at once, as a subscriber with this prefetch would.
+     */
+    @Param({"32", "256"})
+    long demand;
+
+    private SyntheticLookupEvents lookupEvents;
+
+    @Setup
+    public void setup() {
+        lookupEvents = new SyntheticLookupEvents(pageSize, Duration.ofMillis(latencyMs), errorRate);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long poll() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(EVENTS);
+        CloudTrailPoller[] poller = new CloudTrailPoller[1];
+        poller[0] = new CloudTrailPoller(event -> {
+            if (handlerLatencyMs > 0 && received.getCount() % pageSize == 0) {
+                sleep(handlerLatencyMs);
+            }
+            received.countDown();
+            // requests more once the demand is consumed, as a subscriber would
+            if (received.getCount() % demand == 0) {
+                poller[0].request(demand);
+            }
+        }, lookupEvents, PollerSettings.builder()
+                .readAheadPages(readAheadPages)
+                .idleBackoff(Duration.ofMillis(1))
+                .build());
+        poller[0].runAsync();
+        poller[0].request(demand);
+        received.await(1, TimeUnit.MINUTES);
+        poller[0].terminate();
+        return received.getCount();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import cloudTrail.service.publishers.publisher.EventPublisherSpecification;
+import cloudTrail.service.publishers.publisher.StandardOutputPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per event of {@link EventPublisherSpecification} and {@link StandardOutputPublisher}.
+ *
+ * <p>The logger is set to warn by the build, so the standard output publisher is measured without the console I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PublisherBenchmark {
+
+    private final Event event = Event.builder()
+            .eventName("GetObject")
+            .eventSource("s3.amazonaws.com")
+            .build();
+    private EventPublisherSpecification noOpPublisher;
+    private StandardOutputPublisher standardOutputPublisher;
+
+    @Setup
+    public void setup() {
+        noOpPublisher = new EventPublisherSpecification() {
+            @Override
+            protected Mono<Event> publish(Event event) {
+                return Mono.just(event);
+            }
+        };
+        standardOutputPublisher = new StandardOutputPublisher();
+    }
+
+    @Benchmark
+    public Event specification() {
+        return noOpPublisher.processAndPublishEvent(event).block();
+    }
+
+    @Benchmark
+    public Event standardOutput() {
+        return standardOutputPublisher.processAndPublishEvent(event).block();
+    }
+}
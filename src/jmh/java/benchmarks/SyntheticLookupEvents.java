@@ -0,0 +1,55 @@
+package benchmarks;
+
+import cloudTrail.client.LookupEvents;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link LookupEvents} returning an endless stream of pages, with a configurable latency and error rate.
+ *
+ * <p>The events are built once, so the benchmarks measure the poller and the pipeline rather than the fake.
+ */
+public class SyntheticLookupEvents implements LookupEvents {
+
+    private final Duration latency;
+    private final double errorRate;
+    private final List<Event> events;
+
+    public SyntheticLookupEvents(int pageSize, Duration latency, double errorRate) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.events = new ArrayList<>(pageSize);
+        Instant now = Instant.now();
+        for (int i = 0; i < pageSize; i++) {
+            events.add(Event.builder()
+                    .eventId(UUID.randomUUID().toString())
+                    .eventName("GetObject")
+                    .eventSource("s3.amazonaws.com")
+                    .username("benchmark")
+                    .eventTime(now.minusSeconds(i))
+                    .cloudTrailEvent("{\"eventName\":\"GetObject\",\"sourceIPAddress\":\"10.0.0.1\"}")
+                    .build());
+        }
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            return Mono.error(new IllegalStateException("Synthetic failure"));
+        }
+
+        LookupEventsResponse response = LookupEventsResponse.builder()
+                .events(limit >= events.size() ? events : events.subList(0, limit))
+                .nextToken("next")
+                .build();
+        return latency.isZero() ? Mono.just(response) : Mono.delay(latency).thenReturn(response);
+    }
+}
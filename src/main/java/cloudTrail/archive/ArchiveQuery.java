@@ -0,0 +1,26 @@
+package cloudTrail.archive;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Events queried from an {@link EventArchive}, every criterion is optional.
+ */
+@Value
+@Builder
+public class ArchiveQuery {
+
+    /**
+     * Inclusive.
+     */
+    Instant startTime;
+
+    /**
+     * Exclusive.
+     */
+    Instant endTime;
+    String eventName;
+    String eventSource;
+}
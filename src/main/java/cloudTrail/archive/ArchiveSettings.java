@@ -0,0 +1,35 @@
+package cloudTrail.archive;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings of an {@link EventArchive}.
+ */
+@Value
+@Builder
+public class ArchiveSettings {
+
+    @Builder.Default
+    Path directory = Paths.get("archive");
+
+    /**
+     * Number of events compressed together, a block is the unit of the indexes and of the reads.
+     */
+    @Builder.Default
+    int blockEvents = 512;
+
+    /**
+     * Maximum time an event stays in a block which is not full, before it is written and visible to queries.
+     */
+    @Builder.Default
+    Duration flushInterval = Duration.ofSeconds(5);
+
+    public static ArchiveSettings defaults() {
+        return ArchiveSettings.builder().build();
+    }
+}
@@ -0,0 +1,89 @@
+package cloudTrail.archive;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Index entry of a compressed block of a segment: where it is, the time range of its events,
+ * and the distinct event names and sources it holds.
+ */
+class BlockIndex {
+    final long offset;
+    final int compressedLength;
+    final int rawLength;
+    final int count;
+    final long minTime;
+    final long maxTime;
+    final Set<String> eventNames;
+    final Set<String> eventSources;
+
+    BlockIndex(long offset, int compressedLength, int rawLength, int count, long minTime, long maxTime,
+               Set<String> eventNames, Set<String> eventSources) {
+        this.offset = offset;
+        this.compressedLength = compressedLength;
+        this.rawLength = rawLength;
+        this.count = count;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.eventNames = eventNames;
+        this.eventSources = eventSources;
+    }
+
+    /**
+     * @return false if none of the events of the block can match the query
+     */
+    boolean mayMatch(ArchiveQuery query) {
+        if (query.getStartTime() != null && maxTime < query.getStartTime().toEpochMilli()) {
+            return false;
+        }
+        if (query.getEndTime() != null && minTime >= query.getEndTime().toEpochMilli()) {
+            return false;
+        }
+        if (query.getEventName() != null && !eventNames.contains(query.getEventName())) {
+            return false;
+        }
+        return query.getEventSource() == null || eventSources.contains(query.getEventSource());
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        output.writeLong(offset);
+        output.writeInt(compressedLength);
+        output.writeInt(rawLength);
+        output.writeInt(count);
+        output.writeLong(minTime);
+        output.writeLong(maxTime);
+        writeStrings(output, eventNames);
+        writeStrings(output, eventSources);
+    }
+
+    static BlockIndex read(DataInputStream input) throws IOException {
+        return new BlockIndex(
+                input.readLong(),
+                input.readInt(),
+                input.readInt(),
+                input.readInt(),
+                input.readLong(),
+                input.readLong(),
+                readStrings(input),
+                readStrings(input));
+    }
+
+    private static void writeStrings(DataOutputStream output, Set<String> values) throws IOException {
+        output.writeInt(values.size());
+        for (String value : values) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        Set<String> values = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.add(input.readUTF());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,372 @@
+package cloudTrail.archive;
+
+import cloudTrail.spool.EventCodec;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Local archive of events, partitioned by the hour of their event time.
+ *
+ * <p>Every hour has a segment file of deflate compressed blocks of {@link ArchiveSettings#getBlockEvents()} events,
+ * and an index file with one entry per block, see {@link BlockIndex}. The index is sparse: it holds the time range
+ * of every block, and the distinct event names and sources of the block, which is enough to skip the blocks
+ * which cannot match a query. The indexes are kept in memory, the matching blocks are read from mapped segments.
+ *
+ * <p>Blocks are written when full, or after {@link ArchiveSettings#getFlushInterval()}, only written events are
+ * visible to {@link #query(ArchiveQuery)}. A block is written before its index entry, so an entry never points
+ * to a torn block.
+ */
+@Slf4j
+public class EventArchive implements AutoCloseable {
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HH").withZone(ZoneOffset.UTC);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final int blockEvents;
+    private final Scheduler flushScheduler;
+    private final Disposable flushTask;
+
+    /**
+     * Segments by hour since the epoch, only accessed while holding the lock of the archive.
+     */
+    private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+
+    public EventArchive(ArchiveSettings settings) {
+        this.directory = settings.getDirectory();
+        this.blockEvents = Math.max(1, settings.getBlockEvents());
+        try {
+            Files.createDirectories(directory);
+            loadIndexes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the archive at " + directory, e);
+        }
+        long intervalMs = settings.getFlushInterval().toMillis();
+        // a flush writes files, it must not block the shared single scheduler which also runs the timers
+        this.flushScheduler = Schedulers.newSingle("archive-flusher");
+        this.flushTask = flushScheduler.schedulePeriodically(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds an event to the open block of its hour, events without time are archived at the current time.
+     */
+    public synchronized void append(Event event) {
+        long time = event.eventTime() != null ? event.eventTime().toEpochMilli() : System.currentTimeMillis();
+        long hour = Math.floorDiv(time, HOUR_MILLIS);
+        Segment segment = segments.computeIfAbsent(hour, this::newSegment);
+        segment.add(time, event);
+        if (segment.pending.size() >= blockEvents) {
+            writeBlock(segment);
+        }
+    }
+
+    /**
+     * Writes the blocks which are not full.
+     */
+    public synchronized void flush() {
+        for (Segment segment : segments.values()) {
+            if (!segment.pending.isEmpty()) {
+                writeBlock(segment);
+            }
+        }
+    }
+
+    /**
+     * Streams the archived events matching the query, hour after hour.
+     * Events of an hour are returned in the order they were archived.
+     */
+    public Flux<Event> query(ArchiveQuery query) {
+        return Flux.defer(() -> Flux.fromIterable(candidates(query)))
+                .concatMap(candidate -> Flux.using(
+                        () -> FileChannel.open(candidate.segmentFile, READ),
+                        channel -> {
+                            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                            return Flux.fromIterable(candidate.blocks)
+                                    .concatMapIterable(block -> readBlock(mapped, block, query));
+                        },
+                        channel -> {
+                            try {
+                                channel.close();
+                            } catch (IOException e) {
+                                log.warn("Failed to close the segment {}", candidate.segmentFile, e);
+                            }
+                        }))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public void close() {
+        flushTask.dispose();
+        flushScheduler.dispose();
+        flush();
+    }
+
+    /**
+     * Segments in the time range of the query with the blocks which may match it,
+     * copied so the query runs without the lock.
+     */
+    private synchronized List<Candidate> candidates(ArchiveQuery query) {
+        Long fromHour = query.getStartTime() == null ? null : Math.floorDiv(query.getStartTime().toEpochMilli(), HOUR_MILLIS);
+        Long toHour = query.getEndTime() == null ? null : Math.floorDiv(query.getEndTime().toEpochMilli() - 1, HOUR_MILLIS);
+        NavigableMap<Long, Segment> inRange = segments;
+        if (fromHour != null) {
+            inRange = inRange.tailMap(fromHour, true);
+        }
+        if (toHour != null) {
+            inRange = inRange.headMap(toHour, true);
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Segment segment : inRange.values()) {
+            List<BlockIndex> blocks = new ArrayList<>();
+            for (BlockIndex block : segment.blocks) {
+                if (block.mayMatch(query)) {
+                    blocks.add(block);
+                }
+            }
+            if (!blocks.isEmpty()) {
+                candidates.add(new Candidate(segment.segmentFile, blocks));
+            }
+        }
+        return candidates;
+    }
+
+    private static List<Event> readBlock(ByteBuffer segment, BlockIndex block, ArchiveQuery query) {
+        ByteBuffer compressed = segment.duplicate();
+        compressed.position((int) block.offset).limit((int) block.offset + block.compressedLength);
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted archive block at offset " + block.offset, e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer events = ByteBuffer.wrap(raw);
+        List<Event> matching = new ArrayList<>(block.count);
+        for (int i = 0; i < block.count; i++) {
+            int length = events.getInt();
+            ByteBuffer encoded = events.slice();
+            encoded.limit(length);
+            events.position(events.position() + length);
+            Event event = EventCodec.decode(encoded);
+            if (matches(event, query)) {
+                matching.add(event);
+            }
+        }
+        return matching;
+    }
+
+    private static boolean matches(Event event, ArchiveQuery query) {
+        Instant time = event.eventTime();
+        if (query.getStartTime() != null && (time == null || time.isBefore(query.getStartTime()))) {
+            return false;
+        }
+        if (query.getEndTime() != null && (time == null || !time.isBefore(query.getEndTime()))) {
+            return false;
+        }
+        if (query.getEventName() != null && !query.getEventName().equals(event.eventName())) {
+            return false;
+        }
+        return query.getEventSource() == null || query.getEventSource().equals(event.eventSource());
+    }
+
+    private void writeBlock(Segment segment) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream rawOutput = new DataOutputStream(raw);
+        try {
+            for (byte[] encoded : segment.pending) {
+                rawOutput.writeInt(encoded.length);
+                rawOutput.write(encoded);
+            }
+            byte[] rawBytes = raw.toByteArray();
+            byte[] compressed = deflate(rawBytes);
+
+            long offset;
+            try (FileChannel channel = FileChannel.open(segment.segmentFile, CREATE, APPEND)) {
+                offset = channel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(compressed);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            BlockIndex block = new BlockIndex(offset, compressed.length, rawBytes.length, segment.pending.size(),
+                    segment.minTime, segment.maxTime, segment.eventNames, segment.eventSources);
+            try (DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(segment.indexFile, CREATE, APPEND)))) {
+                block.write(index);
+            }
+            segment.blocks.add(block);
+        } catch (IOException e) {
+            log.error("Failed to archive a block of {} events in {}", segment.pending.size(), segment.segmentFile, e);
+        } finally {
+            segment.reset();
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable ex) {
+            log.error("Failed to flush the archive", ex);
+        }
+    }
+
+    private Segment newSegment(long hour) {
+        String name = HOUR_FORMAT.format(Instant.ofEpochMilli(hour * HOUR_MILLIS));
+        return new Segment(directory.resolve(name + SEGMENT_SUFFIX), directory.resolve(name + INDEX_SUFFIX));
+    }
+
+    /**
+     * Loads the index of every segment. The index and the segment are truncated after the last block
+     * written completely to both, so the blocks appended after a crash are not preceded by a torn entry.
+     */
+    private void loadIndexes() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+            for (Path indexFile : files) {
+                String name = indexFile.getFileName().toString();
+                LocalDateTime start = LocalDateTime.parse(name.substring(0, name.length() - INDEX_SUFFIX.length()), HOUR_FORMAT);
+                long hour = Math.floorDiv(start.toInstant(ZoneOffset.UTC).toEpochMilli(), HOUR_MILLIS);
+                Segment segment = newSegment(hour);
+                long segmentSize = Files.exists(segment.segmentFile) ? Files.size(segment.segmentFile) : 0;
+                byte[] index = Files.readAllBytes(indexFile);
+                ByteArrayInputStream bytes = new ByteArrayInputStream(index);
+                DataInputStream input = new DataInputStream(bytes);
+                long indexEnd = 0;
+                long segmentEnd = 0;
+                try {
+                    while (bytes.available() > 0) {
+                        BlockIndex block = BlockIndex.read(input);
+                        if (block.offset + block.compressedLength > segmentSize) {
+                            break;
+                        }
+                        segment.blocks.add(block);
+                        indexEnd = index.length - bytes.available();
+                        segmentEnd = block.offset + block.compressedLength;
+                    }
+                } catch (EOFException tornEntry) {
+                    // the entry written last is incomplete
+                }
+                if (indexEnd < index.length) {
+                    log.warn("Truncating the index {} to its last complete block", indexFile);
+                    truncate(indexFile, indexEnd);
+                }
+                if (segmentEnd < segmentSize) {
+                    truncate(segment.segmentFile, segmentEnd);
+                }
+                segments.put(hour, segment);
+            }
+        }
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static class Segment {
+        private final Path segmentFile;
+        private final Path indexFile;
+        private final List<BlockIndex> blocks = new ArrayList<>();
+        private List<byte[]> pending = new ArrayList<>();
+        private Set<String> eventNames = new HashSet<>();
+        private Set<String> eventSources = new HashSet<>();
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+
+        Segment(Path segmentFile, Path indexFile) {
+            this.segmentFile = segmentFile;
+            this.indexFile = indexFile;
+        }
+
+        void add(long time, Event event) {
+            pending.add(EventCodec.encode(event));
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            if (event.eventName() != null) {
+                eventNames.add(event.eventName());
+            }
+            if (event.eventSource() != null) {
+                eventSources.add(event.eventSource());
+            }
+        }
+
+        void reset() {
+            pending = new ArrayList<>();
+            eventNames = new HashSet<>();
+            eventSources = new HashSet<>();
+            minTime = Long.MAX_VALUE;
+            maxTime = Long.MIN_VALUE;
+        }
+    }
+
+    private static class Candidate {
+        private final Path segmentFile;
+        private final List<BlockIndex> blocks;
+
+        Candidate(Path segmentFile, List<BlockIndex> blocks) {
+            this.segmentFile = segmentFile;
+            this.blocks = blocks;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cloudTrail.checkpoint;
+
+import models.Checkpoint;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of a checkpoint record, {@code [payload length][crc32][payload]}.
+ */
+final class CheckpointCodec {
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final long NO_INSTANT = Long.MIN_VALUE;
+
+    private CheckpointCodec() {
+    }
+
+    /**
+     * @return the whole record, header included
+     */
+    static ByteBuffer encode(Checkpoint checkpoint) {
+        byte[] streamId = checkpoint.getStreamId().getBytes(StandardCharsets.UTF_8);
+        byte[] token = checkpoint.getNextToken() == null ? null : checkpoint.getNextToken().getBytes(StandardCharsets.UTF_8);
+        int payloadBytes = Integer.BYTES + streamId.length
+                + Integer.BYTES + (token == null ? 0 : token.length)
+                + Long.BYTES + 1
+                + 2 * Long.BYTES;
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        record.putInt(payloadBytes);
+        record.putInt(0);
+        record.putInt(streamId.length).put(streamId);
+        record.putInt(token == null ? -1 : token.length);
+        if (token != null) {
+            record.put(token);
+        }
+        record.putLong(toMillis(checkpoint.getWatermark()));
+        record.put((byte) (checkpoint.isCompleted() ? 1 : 0));
+        record.putLong(toMillis(checkpoint.getStartTime()));
+        record.putLong(toMillis(checkpoint.getEndTime()));
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, payloadBytes);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    /**
+     * @param record a whole record, header included
+     * @return the checkpoint of the record, null if it is torn
+     */
+    static Checkpoint read(ByteBuffer record) {
+        if (record.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = record.getInt();
+        int checksum = record.getInt();
+        if (length <= 0 || length > record.remaining()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        record.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum ? decode(ByteBuffer.wrap(payload)) : null;
+    }
+
+    /**
+     * @param payload the payload of a record, without its header
+     */
+    static Checkpoint decode(ByteBuffer payload) {
+        byte[] streamId = new byte[payload.getInt()];
+        payload.get(streamId);
+        int tokenLength = payload.getInt();
+        String token = null;
+        if (tokenLength >= 0) {
+            byte[] tokenBytes = new byte[tokenLength];
+            payload.get(tokenBytes);
+            token = new String(tokenBytes, StandardCharsets.UTF_8);
+        }
+        Instant watermark = toInstant(payload.getLong());
+        boolean completed = payload.get() == 1;
+        // records written before the time range was checkpointed end here
+        Instant startTime = payload.remaining() >= 2 * Long.BYTES ? toInstant(payload.getLong()) : null;
+        Instant endTime = startTime != null ? toInstant(payload.getLong()) : null;
+
+        return Checkpoint.builder()
+                .streamId(new String(streamId, StandardCharsets.UTF_8))
+                .nextToken(token)
+                .watermark(watermark)
+                .completed(completed)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+    }
+
+    private static long toMillis(Instant instant) {
+        return instant == null ? NO_INSTANT : instant.toEpochMilli();
+    }
+
+    private static Instant toInstant(long millis) {
+        return millis == NO_INSTANT ? null : Instant.ofEpochMilli(millis);
+    }
+}
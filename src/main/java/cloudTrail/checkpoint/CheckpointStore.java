@@ -0,0 +1,38 @@
+package cloudTrail.checkpoint;
+
+import models.Checkpoint;
+
+import java.util.Optional;
+
+/**
+ * Stores the progress of every polled stream, so a poller can resume where it stopped.
+ *
+ * <p>The poller commits the checkpoint of a page once its events were handed to the pipeline, not once they were handled.
+ * After a crash the events still in the pipeline, in the spool ring or being handled, are not polled again,
+ * so delivery is at-most-once past the poller, unless the pipeline spools to disk before the handler.
+ *
+ * <p>Implementations must be thread safe, {@link #commit(Checkpoint)} is called on the polling hot path
+ * and should not block on I/O.
+ */
+public interface CheckpointStore extends AutoCloseable {
+
+    /**
+     * @param streamId id of the stream
+     * @return the last committed {@link Checkpoint} of the stream, if any
+     */
+    Optional<Checkpoint> load(String streamId);
+
+    /**
+     * Records the progress of a stream. The checkpoint becomes visible to {@link #load(String)} immediately,
+     * it might be made durable later.
+     *
+     * @param checkpoint see {@link Checkpoint}
+     */
+    void commit(Checkpoint checkpoint);
+
+    /**
+     * Makes every commit durable and releases the resources of this store.
+     */
+    @Override
+    void close();
+}
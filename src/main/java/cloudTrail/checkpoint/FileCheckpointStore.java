@@ -0,0 +1,244 @@
+package cloudTrail.checkpoint;
+
+import lombok.extern.slf4j.Slf4j;
+import models.Checkpoint;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link CheckpointStore} backed by an append-only, memory-mapped log on the local disk.
+ *
+ * <p>Commits are only recorded in memory by the caller, a single flusher appends all the pending ones as a batch
+ * and forces them to disk every flush interval. Only the latest checkpoint of a stream is kept in a batch.
+ * When the mapped region is full the log is compacted into a new file holding the latest checkpoint of every stream.
+ *
+ * <p>Each record is laid out as {@code [payload length][crc32][payload]}, a torn record at the end of the log
+ * is discarded when the store is opened.
+ *
+ * <p>The log is owned by a single process, it is only read when the store is opened,
+ * processes sharing checkpoints use a {@link SharedFileCheckpointStore}.
+ */
+@Slf4j
+public class FileCheckpointStore implements CheckpointStore {
+    private static final String LOG_FILE = "checkpoints.log";
+    private static final String COMPACTED_FILE = "checkpoints.log.compacted";
+    private static final int DEFAULT_REGION_BYTES = 1024 * 1024;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+
+    private final Path logFile;
+    private final Path compactedFile;
+    private final int regionBytes;
+
+    /**
+     * Latest commit of every stream, visible to {@link #load(String)}.
+     */
+    private final Map<String, Checkpoint> latest = new ConcurrentHashMap<>();
+
+    /**
+     * Commits which are not flushed yet.
+     */
+    private final Map<String, Checkpoint> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Checkpoints written to the log, only accessed while holding {@link #writeLock}.
+     */
+    private final Map<String, Checkpoint> durable = new HashMap<>();
+    private final Object writeLock = new Object();
+    private final Scheduler flusher = Schedulers.newSingle("checkpoint-flusher");
+    private final Disposable flushTask;
+    private FileChannel channel;
+    private MappedByteBuffer mappedLog;
+
+    public FileCheckpointStore(Path directory) {
+        this(directory, DEFAULT_REGION_BYTES, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param directory     directory holding the log
+     * @param regionBytes   size of the mapped region, the log is compacted once it is full
+     * @param flushInterval time between two group commits
+     */
+    public FileCheckpointStore(Path directory, int regionBytes, Duration flushInterval) {
+        this.logFile = directory.resolve(LOG_FILE);
+        this.compactedFile = directory.resolve(COMPACTED_FILE);
+        this.regionBytes = regionBytes;
+        try {
+            Files.createDirectories(directory);
+            // a leftover of an interrupted compaction, the log itself is still complete
+            Files.deleteIfExists(compactedFile);
+            channel = FileChannel.open(logFile, CREATE, READ, WRITE);
+            mappedLog = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(regionBytes, channel.size()));
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the checkpoint store at " + directory, e);
+        }
+        long intervalMs = flushInterval.toMillis();
+        this.flushTask = flusher.schedulePeriodically(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Checkpoint> load(String streamId) {
+        return Optional.ofNullable(latest.get(streamId));
+    }
+
+    @Override
+    public void commit(Checkpoint checkpoint) {
+        latest.put(checkpoint.getStreamId(), checkpoint);
+        pending.put(checkpoint.getStreamId(), checkpoint);
+    }
+
+    @Override
+    public void close() {
+        flushTask.dispose();
+        flusher.dispose();
+        synchronized (writeLock) {
+            try {
+                flush();
+                channel.close();
+            } catch (IOException e) {
+                log.error("Failed to close the checkpoint store", e);
+            }
+        }
+    }
+
+    /**
+     * Appends the pending commits to the log as a single batch and forces them to disk.
+     */
+    void flush() throws IOException {
+        synchronized (writeLock) {
+            if (pending.isEmpty() || !channel.isOpen()) {
+                return;
+            }
+
+            List<ByteBuffer> records = new ArrayList<>(pending.size());
+            int batchBytes = 0;
+            for (String streamId : pending.keySet()) {
+                Checkpoint checkpoint = pending.remove(streamId);
+                if (checkpoint != null) {
+                    ByteBuffer record = CheckpointCodec.encode(checkpoint);
+                    batchBytes += record.remaining();
+                    records.add(record);
+                    durable.put(streamId, checkpoint);
+                }
+            }
+
+            if (mappedLog.position() + batchBytes + Integer.BYTES > mappedLog.capacity()) {
+                // the durable state already contains this batch
+                compact();
+                return;
+            }
+
+            for (ByteBuffer record : records) {
+                mappedLog.put(record);
+            }
+            markEndOfLog();
+            mappedLog.force();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable ex) {
+            log.error("Failed to flush the checkpoints", ex);
+        }
+    }
+
+    /**
+     * Rewrites the log with the latest checkpoint of every stream and maps the new log.
+     */
+    private void compact() throws IOException {
+        List<ByteBuffer> records = new ArrayList<>(durable.size());
+        int liveBytes = 0;
+        for (Checkpoint checkpoint : durable.values()) {
+            ByteBuffer record = CheckpointCodec.encode(checkpoint);
+            liveBytes += record.remaining();
+            records.add(record);
+        }
+
+        try (FileChannel compacted = FileChannel.open(compactedFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            for (ByteBuffer record : records) {
+                while (record.hasRemaining()) {
+                    compacted.write(record);
+                }
+            }
+            compacted.force(true);
+        }
+        channel.close();
+        Files.move(compactedFile, logFile, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        // keeps at least half of the region free, so compaction does not run on every flush
+        long capacity = Math.max(regionBytes, 2L * liveBytes + Integer.BYTES);
+        channel = FileChannel.open(logFile, READ, WRITE);
+        mappedLog = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        mappedLog.position(liveBytes);
+        markEndOfLog();
+        mappedLog.force();
+        log.debug("Compacted the checkpoint log to {} streams", durable.size());
+    }
+
+    /**
+     * Rebuilds the state from the log, stopping at the first torn or empty record.
+     */
+    private void replay() {
+        ByteBuffer view = mappedLog.duplicate();
+        int end = 0;
+        while (view.remaining() >= CheckpointCodec.HEADER_BYTES) {
+            int length = view.getInt();
+            int checksum = view.getInt();
+            if (length <= 0 || length > view.remaining()) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            view.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Discarding a torn checkpoint record at offset {}", end);
+                break;
+            }
+
+            Checkpoint checkpoint = CheckpointCodec.decode(ByteBuffer.wrap(payload));
+            durable.put(checkpoint.getStreamId(), checkpoint);
+            latest.put(checkpoint.getStreamId(), checkpoint);
+            end = view.position();
+        }
+        mappedLog.position(end);
+    }
+
+    /**
+     * Writes an empty header after the last record, without moving the position,
+     * so leftovers of a torn record are never replayed.
+     */
+    private void markEndOfLog() {
+        if (mappedLog.remaining() >= Integer.BYTES) {
+            mappedLog.putInt(mappedLog.position(), 0);
+        }
+    }
+}
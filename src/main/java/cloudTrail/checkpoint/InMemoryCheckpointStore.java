@@ -0,0 +1,29 @@
+package cloudTrail.checkpoint;
+
+import models.Checkpoint;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link CheckpointStore} which does not survive restarts.
+ */
+public class InMemoryCheckpointStore implements CheckpointStore {
+
+    private final Map<String, Checkpoint> checkpoints = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Checkpoint> load(String streamId) {
+        return Optional.ofNullable(checkpoints.get(streamId));
+    }
+
+    @Override
+    public void commit(Checkpoint checkpoint) {
+        checkpoints.put(checkpoint.getStreamId(), checkpoint);
+    }
+
+    @Override
+    public void close() {
+    }
+}
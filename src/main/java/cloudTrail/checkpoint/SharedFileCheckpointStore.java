@@ -0,0 +1,103 @@
+package cloudTrail.checkpoint;
+
+import models.Checkpoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link CheckpointStore} shared by the processes of a single machine through a directory,
+ * so a unit handed over by a {@link cloudTrail.lease.LeaseCoordinator} resumes where its previous owner stopped.
+ *
+ * <p>Every stream has its own file, replaced atomically on every commit, and {@link #load(String)} always reads it
+ * back from the disk. Both hold an exclusive lock on {@code checkpoints.lock}, like {@link cloudTrail.lease.FileLeaseStore}.
+ * A commit writes to the disk on the polling thread, which is fine for the few pages per second CloudTrail returns.
+ */
+public class SharedFileCheckpointStore implements CheckpointStore {
+    private static final String LOCK_FILE = "checkpoints.lock";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final Path lockFile;
+    private final Object monitor;
+
+    public SharedFileCheckpointStore(Path directory) {
+        Path absolute = directory.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(absolute);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the checkpoint store at " + absolute, e);
+        }
+        this.directory = absolute;
+        this.lockFile = absolute.resolve(LOCK_FILE);
+        this.monitor = MONITORS.computeIfAbsent(absolute, ignored -> new Object());
+    }
+
+    @Override
+    public Optional<Checkpoint> load(String streamId) {
+        return locked(() -> {
+            byte[] record;
+            try {
+                record = Files.readAllBytes(checkpointFile(streamId));
+            } catch (NoSuchFileException e) {
+                return Optional.empty();
+            }
+            // files are replaced atomically, a torn one was left by a broken disk
+            return Optional.ofNullable(CheckpointCodec.read(ByteBuffer.wrap(record)));
+        });
+    }
+
+    @Override
+    public void commit(Checkpoint checkpoint) {
+        locked(() -> {
+            Path checkpointFile = checkpointFile(checkpoint.getStreamId());
+            Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + TEMPORARY_SUFFIX);
+            ByteBuffer record = CheckpointCodec.encode(checkpoint);
+            Files.write(temporaryFile, record.array());
+            Files.move(temporaryFile, checkpointFile, ATOMIC_MOVE, REPLACE_EXISTING);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        // every operation opens and closes its own files
+    }
+
+    private Path checkpointFile(String streamId) {
+        return directory.resolve(URLEncoder.encode(streamId, StandardCharsets.UTF_8) + CHECKPOINT_SUFFIX);
+    }
+
+    private <T> T locked(IOSupplier<T> operation) {
+        synchronized (monitor) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, CREATE, WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                return operation.get();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to access the checkpoints at " + directory, e);
+            }
+        }
+    }
+
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+}
@@ -1,6 +1,7 @@
 package cloudTrail.client;
 
 import lombok.extern.slf4j.Slf4j;
+import models.LookupEventsQuery;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.CloudTrailAsyncClient;
 import software.amazon.awssdk.services.cloudtrail.model.LookupEventsRequest;
@@ -16,14 +17,24 @@ public class CTAsyncClient implements LookupEvents {
     }
 
     public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
-        LookupEventsRequest request = LookupEventsRequest.builder()
-                .nextToken(next)
-                .maxResults(limit)
-                .build();
-        return Mono.fromCompletionStage(cloudTrailAsyncClient.lookupEvents(request))
-                .onErrorResume(throwable -> {
-                    log.warn("Something went wrong", throwable);
-                    return Mono.just(LookupEventsResponse.builder().build());
-                });
+        return lookupEvents(LookupEventsQuery.builder()
+                .next(next)
+                .limit(limit)
+                .build());
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+        LookupEventsRequest.Builder request = LookupEventsRequest.builder()
+                .nextToken(query.getNext())
+                .maxResults(query.getLimit())
+                .startTime(query.getStartTime())
+                .endTime(query.getEndTime());
+        if (query.getLookupAttribute() != null) {
+            request.lookupAttributes(query.getLookupAttribute());
+        }
+        // errors are propagated, so throttling can be told apart from an empty page
+        return Mono.fromCompletionStage(cloudTrailAsyncClient.lookupEvents(request.build()))
+                .doOnError(throwable -> log.warn("Something went wrong", throwable));
     }
 }
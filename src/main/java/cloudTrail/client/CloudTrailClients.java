@@ -0,0 +1,55 @@
+package cloudTrail.client;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cloudtrail.CloudTrailAsyncClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Builds CloudTrail clients sharing a single HTTP client, so every account and region polled by the application
+ * uses the same connection pools and event loop instead of a set of threads per client.
+ */
+public class CloudTrailClients implements AutoCloseable {
+    private static final int MAX_CONCURRENCY = 200;
+
+    private final SdkAsyncHttpClient httpClient;
+    private final List<CloudTrailAsyncClient> clients = new CopyOnWriteArrayList<>();
+
+    public CloudTrailClients() {
+        this(NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(MAX_CONCURRENCY)
+                .connectionMaxIdleTime(Duration.ofSeconds(30))
+                .build());
+    }
+
+    public CloudTrailClients(SdkAsyncHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public CloudTrailAsyncClient create(Region region, AwsCredentialsProvider credentialsProvider) {
+        CloudTrailAsyncClient client = CloudTrailAsyncClient.builder()
+                .httpClient(httpClient)
+                .credentialsProvider(credentialsProvider)
+                .region(region)
+                .build();
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * Closes every client built, then the shared HTTP client which the clients do not close themselves.
+     */
+    @Override
+    public void close() {
+        for (CloudTrailAsyncClient client : clients) {
+            client.close();
+        }
+        clients.clear();
+        httpClient.close();
+    }
+}
@@ -1,5 +1,6 @@
 package cloudTrail.client;
 
+import models.LookupEventsQuery;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
 
@@ -7,4 +8,17 @@ import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
 public interface LookupEvents {
 
     Mono<LookupEventsResponse> lookupEvents(String next, int limit);
+
+    /**
+     * Looks up a page of events for the given query.
+     *
+     * <p>Implementations which are not able to restrict the time range fall back to
+     * {@link #lookupEvents(String, int)}.
+     *
+     * @param query see {@link LookupEventsQuery}
+     * @return a page of events
+     */
+    default Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+        return lookupEvents(query.getNext(), query.getLimit());
+    }
 }
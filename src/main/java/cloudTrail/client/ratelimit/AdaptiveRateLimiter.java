@@ -0,0 +1,97 @@
+package cloudTrail.client.ratelimit;
+
+import models.RateLimiterStats;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket whose rate follows an additive-increase / multiplicative-decrease policy.
+ *
+ * <p>Every call reserves a permit, the returned wait time is how long the caller must delay the call.
+ * Throttled calls cut the rate by {@link RateLimiterSettings#getMultiplicativeDecrease()},
+ * successful calls grow it back by {@link RateLimiterSettings#getAdditiveIncrease()} per second of calls,
+ * so the rate keeps probing the actual limit of the account.
+ *
+ * <p>A single instance is meant to be shared by every poller calling the same account and region.
+ */
+public class AdaptiveRateLimiter {
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimiterSettings settings;
+    private final long decreaseCooldownNanos;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastDecreaseNanos;
+    private long acquiredCount;
+    private long throttleCount;
+    private long totalWaitNanos;
+
+    public AdaptiveRateLimiter(RateLimiterSettings settings) {
+        this.settings = settings;
+        this.decreaseCooldownNanos = settings.getDecreaseCooldown().toNanos();
+        this.rate = settings.getInitialRate();
+        this.tokens = settings.getBurst();
+        this.lastRefillNanos = System.nanoTime();
+        this.lastDecreaseNanos = lastRefillNanos - decreaseCooldownNanos;
+    }
+
+    /**
+     * Reserves a permit.
+     *
+     * <p>The bucket can go below zero, which queues the callers behind each other.
+     *
+     * @return the time to wait before the call can be issued, {@link Duration#ZERO} if it can be issued now.
+     */
+    public synchronized Duration reserve() {
+        refill(System.nanoTime());
+        acquiredCount++;
+        tokens -= 1;
+        if (tokens >= 0) {
+            return Duration.ZERO;
+        }
+
+        long waitNanos = (long) (-tokens / rate * NANOS_PER_SECOND);
+        totalWaitNanos += waitNanos;
+        return Duration.ofNanos(waitNanos);
+    }
+
+    /**
+     * Grows the rate after a successful call.
+     */
+    public synchronized void onSuccess() {
+        // adding increase/rate per call adds `increase` every second worth of calls
+        rate = Math.min(settings.getMaxRate(), rate + settings.getAdditiveIncrease() / rate);
+    }
+
+    /**
+     * Cuts the rate after a throttled call, at most once per cooldown.
+     */
+    public synchronized void onThrottle() {
+        throttleCount++;
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < decreaseCooldownNanos) {
+            return;
+        }
+
+        refill(now);
+        lastDecreaseNanos = now;
+        rate = Math.max(settings.getMinRate(), rate * settings.getMultiplicativeDecrease());
+        tokens = Math.min(tokens, 0);
+    }
+
+    public synchronized RateLimiterStats snapshot() {
+        return RateLimiterStats.builder()
+                .currentRate(rate)
+                .acquiredCount(acquiredCount)
+                .throttleCount(throttleCount)
+                .totalWaitTime(Duration.ofNanos(totalWaitNanos))
+                .build();
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(settings.getBurst(), tokens + (now - lastRefillNanos) / NANOS_PER_SECOND * rate);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,63 @@
+package cloudTrail.client.ratelimit;
+
+import cloudTrail.client.LookupEvents;
+import lombok.extern.slf4j.Slf4j;
+import models.LookupEventsQuery;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.time.Duration;
+
+/**
+ * {@link LookupEvents} which delays the calls according to an {@link AdaptiveRateLimiter}
+ * and feeds it back with the outcome of every call.
+ *
+ * <p>The delay does not block any thread, the call is issued when a timer fires.
+ */
+@Slf4j
+public class RateLimitedLookupEvents implements LookupEvents {
+
+    private final LookupEvents lookupEvents;
+    private final AdaptiveRateLimiter rateLimiter;
+
+    public RateLimitedLookupEvents(LookupEvents lookupEvents, AdaptiveRateLimiter rateLimiter) {
+        this.lookupEvents = lookupEvents;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+        return lookupEvents(LookupEventsQuery.builder()
+                .next(next)
+                .limit(limit)
+                .build());
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+        return Mono.defer(() -> {
+            Duration wait = rateLimiter.reserve();
+            Mono<LookupEventsResponse> call = Mono.defer(() -> lookupEvents.lookupEvents(query))
+                    .doOnNext(response -> rateLimiter.onSuccess())
+                    .doOnError(RateLimitedLookupEvents::isThrottling, throwable -> {
+                        log.warn("LookupEvents was throttled, current rate is {}/s", rateLimiter.snapshot().getCurrentRate());
+                        rateLimiter.onThrottle();
+                    });
+            return wait.isZero() ? call : Mono.delay(wait).then(call);
+        });
+    }
+
+    /**
+     * @param throwable error returned by the CloudTrail client
+     * @return true if the error or one of its causes is a throttling error
+     */
+    static boolean isThrottling(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SdkServiceException && ((SdkServiceException) cause).isThrottlingException()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package cloudTrail.client.ratelimit;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of an {@link AdaptiveRateLimiter}.
+ *
+ * <p>The defaults follow the LookupEvents limit of 2 calls per second, per account and per region.
+ */
+@Value
+@Builder
+public class RateLimiterSettings {
+
+    @Builder.Default
+    double initialRate = 2.0;
+
+    @Builder.Default
+    double minRate = 0.1;
+
+    @Builder.Default
+    double maxRate = 2.0;
+
+    /**
+     * Maximum number of permits which can be accumulated while idle.
+     */
+    @Builder.Default
+    double burst = 2.0;
+
+    /**
+     * Permits per second added to the rate for every second worth of successful calls.
+     */
+    @Builder.Default
+    double additiveIncrease = 0.1;
+
+    /**
+     * Factor the rate is multiplied by when a call is throttled.
+     */
+    @Builder.Default
+    double multiplicativeDecrease = 0.5;
+
+    /**
+     * Minimum time between two decreases, so calls in flight throttled at once only count as one.
+     */
+    @Builder.Default
+    Duration decreaseCooldown = Duration.ofSeconds(1);
+
+    public static RateLimiterSettings defaults() {
+        return RateLimiterSettings.builder().build();
+    }
+}
@@ -0,0 +1,83 @@
+package cloudTrail.client.replay;
+
+import cloudTrail.spool.EventCodec;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * File format of the recorded LookupEvents pages, a gzip stream of
+ * {@code [magic][version]} followed by one record per page:
+ * {@code [millis since the start of the recording][event count][length, EventCodec bytes]*}.
+ */
+class Recording {
+    private static final int MAGIC = 0x43545250;
+    private static final int VERSION = 1;
+
+    static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    static void writePage(DataOutputStream output, long offsetMillis, LookupEventsResponse response) throws IOException {
+        output.writeLong(offsetMillis);
+        output.writeInt(response.events().size());
+        for (Event event : response.events()) {
+            byte[] encoded = EventCodec.encode(event);
+            output.writeInt(encoded.length);
+            output.write(encoded);
+        }
+    }
+
+    /**
+     * Reads every page of a recording, a page truncated by an interrupted recording is ignored.
+     */
+    static List<RecordedPage> read(Path file) {
+        List<RecordedPage> pages = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IllegalArgumentException(file + " is not a LookupEvents recording");
+            }
+            while (true) {
+                long offsetMillis;
+                try {
+                    offsetMillis = input.readLong();
+                } catch (EOFException endOfRecording) {
+                    return pages;
+                }
+                int count = input.readInt();
+                List<Event> events = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte[] encoded = new byte[input.readInt()];
+                    input.readFully(encoded);
+                    events.add(EventCodec.decode(encoded));
+                }
+                pages.add(new RecordedPage(offsetMillis, events));
+            }
+        } catch (EOFException truncated) {
+            return pages;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the recording " + file, e);
+        }
+    }
+
+    static class RecordedPage {
+        final long offsetMillis;
+        final List<Event> events;
+
+        RecordedPage(long offsetMillis, List<Event> events) {
+            this.offsetMillis = offsetMillis;
+            this.events = events;
+        }
+    }
+}
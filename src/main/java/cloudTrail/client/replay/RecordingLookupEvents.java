@@ -0,0 +1,73 @@
+package cloudTrail.client.replay;
+
+import cloudTrail.client.LookupEvents;
+import lombok.extern.slf4j.Slf4j;
+import models.LookupEventsQuery;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link LookupEvents} recording every page returned by another one, to be served back by {@link ReplayLookupEvents}.
+ *
+ * <p>Pages are appended to a gzip compressed file with the time they were received at, events are encoded
+ * with {@link cloudTrail.spool.EventCodec}. Every page is flushed, so a recording interrupted by a crash is readable.
+ */
+@Slf4j
+public class RecordingLookupEvents implements LookupEvents, AutoCloseable {
+
+    private final LookupEvents lookupEvents;
+    private final Path file;
+    private final DataOutputStream output;
+    private final long startMillis = System.currentTimeMillis();
+
+    public RecordingLookupEvents(LookupEvents lookupEvents, Path file) {
+        this.lookupEvents = lookupEvents;
+        this.file = file;
+        try {
+            this.output = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(file), true)));
+            Recording.writeHeader(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the recording " + file, e);
+        }
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+        return lookupEvents(LookupEventsQuery.builder()
+                .next(next)
+                .limit(limit)
+                .build());
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+        return lookupEvents.lookupEvents(query).doOnNext(this::record);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.error("Failed to close the recording {}", file, e);
+        }
+    }
+
+    private synchronized void record(LookupEventsResponse response) {
+        try {
+            Recording.writePage(output, System.currentTimeMillis() - startMillis, response);
+            output.flush();
+        } catch (IOException e) {
+            log.error("Failed to record a page to {}", file, e);
+        }
+    }
+}
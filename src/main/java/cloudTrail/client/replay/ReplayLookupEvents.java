@@ -0,0 +1,86 @@
+package cloudTrail.client.replay;
+
+import cloudTrail.client.LookupEvents;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.cloudtrail.model.CloudTrailException;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link LookupEvents} serving the pages of a recording made by {@link RecordingLookupEvents}, without calling AWS.
+ *
+ * <p>A call without token starts from the first recorded page, the returned tokens walk the recording page by page.
+ * Time ranges, attributes and limits of the queries are ignored, pages are served as recorded.
+ * Latency and throttling errors can be injected to exercise the rate limiter and the poller.
+ */
+public class ReplayLookupEvents implements LookupEvents {
+    private static final String TOKEN_PREFIX = "replay/";
+
+    private final List<Recording.RecordedPage> pages;
+    private final ReplaySettings settings;
+    private final long cycleMillis;
+    private final AtomicLong startNanos = new AtomicLong();
+
+    public ReplayLookupEvents(Path recording, ReplaySettings settings) {
+        this.pages = Recording.read(recording);
+        this.settings = settings;
+        this.cycleMillis = pages.isEmpty() ? 0 : pages.get(pages.size() - 1).offsetMillis - pages.get(0).offsetMillis;
+    }
+
+    /**
+     * @return number of recorded pages
+     */
+    public int size() {
+        return pages.size();
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+        startNanos.compareAndSet(0, System.nanoTime());
+        if (pages.isEmpty()) {
+            return Mono.just(LookupEventsResponse.builder().build());
+        }
+
+        long position = next == null ? 0 : Long.parseLong(next.substring(TOKEN_PREFIX.length()));
+        long cycle = position / pages.size();
+        Recording.RecordedPage page = pages.get((int) (position % pages.size()));
+        boolean last = position + 1 >= pages.size() && !settings.isLoop();
+        LookupEventsResponse response = LookupEventsResponse.builder()
+                .events(page.events)
+                .nextToken(last ? null : TOKEN_PREFIX + (position + 1))
+                .build();
+
+        Duration delay = settings.getLatency().plus(pacingDelay(page, cycle));
+        Mono<LookupEventsResponse> call = ThreadLocalRandom.current().nextDouble() < settings.getThrottleRate()
+                ? Mono.error(throttlingException())
+                : Mono.just(response);
+        return delay.isZero() || delay.isNegative() ? call : Mono.delay(delay).then(call);
+    }
+
+    /**
+     * Time left until the page is due, relative to the first call.
+     */
+    private Duration pacingDelay(Recording.RecordedPage page, long cycle) {
+        if (settings.getPacing() == ReplaySettings.Pacing.ASAP) {
+            return Duration.ZERO;
+        }
+        long recordedMillis = page.offsetMillis - pages.get(0).offsetMillis + cycle * cycleMillis;
+        long dueNanos = startNanos.get() + (long) (TimeUnit.MILLISECONDS.toNanos(recordedMillis) / settings.getSpeed());
+        return Duration.ofNanos(Math.max(0, dueNanos - System.nanoTime()));
+    }
+
+    private static CloudTrailException throttlingException() {
+        return CloudTrailException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").build())
+                .statusCode(400)
+                .message("Rate exceeded (injected)")
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package cloudTrail.client.replay;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link ReplayLookupEvents}.
+ */
+@Value
+@Builder
+public class ReplaySettings {
+
+    public enum Pacing {
+        /**
+         * Pages are served at the pace they were recorded at, divided by {@link #speed}.
+         */
+        ORIGINAL,
+
+        /**
+         * Pages are served as fast as they are requested.
+         */
+        ASAP
+    }
+
+    @Builder.Default
+    Pacing pacing = Pacing.ASAP;
+
+    /**
+     * Speed up of {@link Pacing#ORIGINAL}, 10 replays ten times faster than recorded.
+     */
+    @Builder.Default
+    double speed = 1.0;
+
+    /**
+     * Starts again from the first page after the last one, instead of ending the pagination.
+     */
+    @Builder.Default
+    boolean loop = false;
+
+    /**
+     * Added to every call, on top of the pacing.
+     */
+    @Builder.Default
+    Duration latency = Duration.ZERO;
+
+    /**
+     * Share of the calls failing with a throttling error.
+     */
+    @Builder.Default
+    double throttleRate = 0.0;
+
+    public static ReplaySettings defaults() {
+        return ReplaySettings.builder().build();
+    }
+}
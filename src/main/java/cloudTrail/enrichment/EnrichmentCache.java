@@ -0,0 +1,251 @@
+package cloudTrail.enrichment;
+
+import cloudTrail.metrics.Histogram;
+import lombok.extern.slf4j.Slf4j;
+import models.EnrichmentStats;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous loading cache in front of an {@link EnrichmentResolver}.
+ *
+ * <p>The missing keys of a lookup are resolved together, in calls of at most {@link EnrichmentSettings#getBatchSize()}
+ * keys. A key already being loaded is not loaded again, the lookups waiting for it share the pending load.
+ * Keys older than {@link EnrichmentSettings#getRefreshAfter()} are returned as they are and reloaded in the background,
+ * keys older than {@link EnrichmentSettings#getTtl()} are loaded again before being returned.
+ * Keys without metadata are cached as well, so they are not looked up for every event.
+ *
+ * <p>Once {@link EnrichmentSettings#getMaxEntries()} is exceeded the keys are evicted in the order they were first cached.
+ */
+@Slf4j
+public class EnrichmentCache {
+
+    private final EnrichmentResolver resolver;
+    private final EnrichmentSettings settings;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Pending load of every key being loaded, completed empty for the keys without metadata.
+     */
+    private final Map<String, Sinks.One<Map<String, String>>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Histogram loadLatencyMicros = new Histogram();
+
+    public EnrichmentCache(EnrichmentResolver resolver, EnrichmentSettings settings) {
+        this.resolver = resolver;
+        this.settings = settings;
+        this.ttlNanos = settings.getTtl().toNanos();
+        this.refreshAfterNanos = settings.getRefreshAfter().toNanos();
+    }
+
+    /**
+     * @return the cached attributes of the key, null if they are unknown, expired, or if the key has no metadata
+     */
+    public Map<String, String> getIfPresent(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || System.nanoTime() - entry.loadedNanos >= ttlNanos) {
+            return null;
+        }
+        return entry.attributes;
+    }
+
+    /**
+     * Looks up the keys, loading the missing ones. A key which failed to load is left out, like a key without metadata.
+     *
+     * @return the attributes by key
+     */
+    public Mono<Map<String, Map<String, String>>> getAll(Collection<String> keys) {
+        return Mono.defer(() -> lookup(keys));
+    }
+
+    private Mono<Map<String, Map<String, String>>> lookup(Collection<String> keys) {
+        long now = System.nanoTime();
+        Map<String, Map<String, String>> found = new HashMap<>();
+        Map<String, Mono<Map<String, String>>> waiting = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        Set<String> toLoad = new HashSet<>();
+        Set<String> toRefresh = new HashSet<>();
+        for (String key : keys) {
+            if (key == null || !seen.add(key)) {
+                continue;
+            }
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.loadedNanos < ttlNanos) {
+                hits.increment();
+                if (entry.attributes != null) {
+                    found.put(key, entry.attributes);
+                }
+                if (now - entry.loadedNanos >= refreshAfterNanos && entry.refreshing.compareAndSet(false, true)) {
+                    if (loading.putIfAbsent(key, Sinks.one()) == null) {
+                        toRefresh.add(key);
+                    } else {
+                        entry.refreshing.set(false);
+                    }
+                }
+                continue;
+            }
+
+            misses.increment();
+            Sinks.One<Map<String, String>> load = Sinks.one();
+            Sinks.One<Map<String, String>> pending = loading.putIfAbsent(key, load);
+            if (pending == null) {
+                toLoad.add(key);
+                pending = load;
+            }
+            waiting.put(key, pending.asMono().onErrorResume(error -> Mono.empty()));
+        }
+
+        load(toLoad);
+        if (!toRefresh.isEmpty()) {
+            refreshes.add(toRefresh.size());
+            load(toRefresh);
+        }
+        if (waiting.isEmpty()) {
+            return Mono.just(found);
+        }
+        return Flux.fromIterable(waiting.entrySet())
+                .flatMap(wait -> wait.getValue().map(attributes -> Map.entry(wait.getKey(), attributes)), waiting.size())
+                .collect(() -> new HashMap<>(found), (all, loaded) -> all.put(loaded.getKey(), loaded.getValue()));
+    }
+
+    public EnrichmentStats snapshot() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        return EnrichmentStats.builder()
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount))
+                .loads(loads.sum())
+                .loadFailures(loadFailures.sum())
+                .refreshes(refreshes.sum())
+                .evictions(evictions.sum())
+                .size(entries.size())
+                .loadLatencyMicros(loadLatencyMicros.snapshot())
+                .build();
+    }
+
+    /**
+     * Resolves keys registered in {@link #loading} by the caller, in batches.
+     */
+    private void load(Set<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> pending = new ArrayList<>(keys);
+        int batchSize = Math.max(1, settings.getBatchSize());
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            Set<String> batch = new HashSet<>(pending.subList(from, Math.min(pending.size(), from + batchSize)));
+            long start = System.nanoTime();
+            loads.increment();
+            Mono.defer(() -> resolver.resolve(batch))
+                    .timeout(settings.getLoadTimeout())
+                    .defaultIfEmpty(Collections.emptyMap())
+                    .subscribe(
+                            resolved -> {
+                                loadLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                                for (String key : batch) {
+                                    complete(key, resolved.get(key));
+                                }
+                            },
+                            error -> {
+                                loadFailures.increment();
+                                log.warn("Failed to resolve {} enrichment keys", batch.size(), error);
+                                for (String key : batch) {
+                                    fail(key, error);
+                                }
+                            });
+        }
+    }
+
+    private void complete(String key, Map<String, String> attributes) {
+        long now = System.nanoTime();
+        entries.compute(key, (ignored, entry) -> {
+            if (entry == null) {
+                Entry created = new Entry(key, attributes, now);
+                insertionOrder.add(created);
+                return created;
+            }
+            entry.attributes = attributes;
+            entry.loadedNanos = now;
+            entry.refreshing.set(false);
+            return entry;
+        });
+        evictIfNeeded();
+
+        Sinks.One<Map<String, String>> load = loading.remove(key);
+        if (load != null) {
+            if (attributes == null) {
+                load.tryEmitEmpty();
+            } else {
+                load.tryEmitValue(attributes);
+            }
+        }
+    }
+
+    /**
+     * A failed refresh keeps the previous attributes until they expire.
+     */
+    private void fail(String key, Throwable error) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.refreshing.set(false);
+        }
+        Sinks.One<Map<String, String>> load = loading.remove(key);
+        if (load != null) {
+            load.tryEmitError(error);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (entries.size() > settings.getMaxEntries()) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.key, oldest)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Updated in place when reloaded, so it is queued once for eviction.
+     */
+    private static class Entry {
+        private final String key;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile Map<String, String> attributes;
+        private volatile long loadedNanos;
+
+        private Entry(String key, Map<String, String> attributes, long loadedNanos) {
+            this.key = key;
+            this.attributes = attributes;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cloudTrail.enrichment;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks up the metadata of principals and resources, such as their owner team or account alias,
+ * see {@link EventEnrichment} for the keys.
+ */
+public interface EnrichmentResolver {
+
+    /**
+     * @param keys keys to be resolved, at most {@link EnrichmentSettings#getBatchSize()} per call
+     * @return the attributes by key, a key without metadata is left out of the map
+     */
+    Mono<Map<String, Map<String, String>>> resolve(Set<String> keys);
+}
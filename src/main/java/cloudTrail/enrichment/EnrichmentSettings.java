@@ -0,0 +1,54 @@
+package cloudTrail.enrichment;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of an {@link EnrichmentCache} and of the {@link EventEnrichment} stage.
+ */
+@Value
+@Builder
+public class EnrichmentSettings {
+
+    /**
+     * Maximum number of cached keys, the oldest ones are evicted first.
+     */
+    @Builder.Default
+    int maxEntries = 100_000;
+
+    /**
+     * Time the attributes of a key are used before they are loaded again.
+     */
+    @Builder.Default
+    Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Attributes older than this are still returned, and reloaded in the background, so busy keys never expire.
+     */
+    @Builder.Default
+    Duration refreshAfter = Duration.ofMinutes(8);
+
+    /**
+     * Maximum number of keys per call to the resolver, and of events whose keys are looked up together.
+     */
+    @Builder.Default
+    int batchSize = 100;
+
+    /**
+     * Maximum time an event waits for the next ones, so their keys are looked up together.
+     */
+    @Builder.Default
+    Duration batchLinger = Duration.ofMillis(10);
+
+    /**
+     * Events are handled without the attributes of a key which takes longer than this to be loaded.
+     */
+    @Builder.Default
+    Duration loadTimeout = Duration.ofSeconds(5);
+
+    public static EnrichmentSettings defaults() {
+        return EnrichmentSettings.builder().build();
+    }
+}
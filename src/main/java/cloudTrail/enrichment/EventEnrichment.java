@@ -0,0 +1,95 @@
+package cloudTrail.enrichment;
+
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pipeline stage looking up the principal and the resources of the events in an {@link EnrichmentCache}.
+ *
+ * <p>Events are grouped by up to {@link EnrichmentSettings#getBatchSize()}, or for {@link EnrichmentSettings#getBatchLinger()},
+ * and emitted in order once the keys of the group were looked up, so the handlers read the attributes
+ * from the cache with {@link #principal(Event)} and {@link #resources(Event)} without waiting.
+ * Principals are keyed {@code principal/<username>} and resources {@code resource/<resource name>}.
+ */
+public class EventEnrichment {
+
+    private final EnrichmentCache cache;
+    private final EnrichmentSettings settings;
+
+    public EventEnrichment(EnrichmentResolver resolver, EnrichmentSettings settings) {
+        this(new EnrichmentCache(resolver, settings), settings);
+    }
+
+    public EventEnrichment(EnrichmentCache cache, EnrichmentSettings settings) {
+        this.cache = cache;
+        this.settings = settings;
+    }
+
+    public static String principalKey(String username) {
+        return "principal/" + username;
+    }
+
+    public static String resourceKey(String resourceName) {
+        return "resource/" + resourceName;
+    }
+
+    public Flux<Event> apply(Flux<Event> events) {
+        // bufferTimeout is applied to windows of one group, see CloudTrailPipeline
+        int batchSize = Math.max(1, settings.getBatchSize());
+        return events
+                .window(batchSize)
+                .concatMap(window -> window
+                        .bufferTimeout(batchSize, settings.getBatchLinger())
+                        // a window emits up to one buffer per event, which bufferTimeout cannot hold back
+                        .concatMap(this::lookup, batchSize));
+    }
+
+    /**
+     * @return the attributes of the principal of the event, null if unknown
+     */
+    public Map<String, String> principal(Event event) {
+        return event.username() == null ? null : cache.getIfPresent(principalKey(event.username()));
+    }
+
+    /**
+     * @return the attributes of the known resources of the event, by resource name
+     */
+    public Map<String, Map<String, String>> resources(Event event) {
+        Map<String, Map<String, String>> resources = new HashMap<>();
+        for (Resource resource : event.resources()) {
+            if (resource.resourceName() != null) {
+                Map<String, String> attributes = cache.getIfPresent(resourceKey(resource.resourceName()));
+                if (attributes != null) {
+                    resources.put(resource.resourceName(), attributes);
+                }
+            }
+        }
+        return resources;
+    }
+
+    public EnrichmentCache getCache() {
+        return cache;
+    }
+
+    private Flux<Event> lookup(List<Event> events) {
+        Set<String> keys = new HashSet<>();
+        for (Event event : events) {
+            if (event.username() != null) {
+                keys.add(principalKey(event.username()));
+            }
+            for (Resource resource : event.resources()) {
+                if (resource.resourceName() != null) {
+                    keys.add(resourceKey(resource.resourceName()));
+                }
+            }
+        }
+        return cache.getAll(keys).thenMany(Flux.fromIterable(events));
+    }
+}
@@ -0,0 +1,55 @@
+package cloudTrail.enrichment;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EnrichmentResolver} answering from a map, with an optional latency to stand in for a remote service.
+ */
+public class InMemoryEnrichmentResolver implements EnrichmentResolver {
+
+    private final Map<String, Map<String, String>> attributes = new ConcurrentHashMap<>();
+    private final Duration latency;
+    private final AtomicLong calls = new AtomicLong();
+
+    public InMemoryEnrichmentResolver() {
+        this(Duration.ZERO);
+    }
+
+    public InMemoryEnrichmentResolver(Duration latency) {
+        this.latency = latency;
+    }
+
+    public InMemoryEnrichmentResolver put(String key, Map<String, String> keyAttributes) {
+        attributes.put(key, keyAttributes);
+        return this;
+    }
+
+    @Override
+    public Mono<Map<String, Map<String, String>>> resolve(Set<String> keys) {
+        return Mono.fromCallable(() -> {
+            calls.incrementAndGet();
+            Map<String, Map<String, String>> resolved = new HashMap<>();
+            for (String key : keys) {
+                Map<String, String> keyAttributes = attributes.get(key);
+                if (keyAttributes != null) {
+                    resolved.put(key, keyAttributes);
+                }
+            }
+            return resolved;
+        }).delaySubscription(latency);
+    }
+
+    /**
+     * @return number of calls to {@link #resolve(Set)}
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+}
@@ -1,37 +1,393 @@
 package cloudTrail.factory;
 
+import cloudTrail.archive.ArchiveSettings;
+import cloudTrail.archive.EventArchive;
+import cloudTrail.checkpoint.CheckpointStore;
+import cloudTrail.checkpoint.FileCheckpointStore;
+import cloudTrail.checkpoint.SharedFileCheckpointStore;
 import cloudTrail.client.CTAsyncClient;
+import cloudTrail.client.CloudTrailClients;
+import cloudTrail.client.LookupEvents;
+import cloudTrail.client.ratelimit.AdaptiveRateLimiter;
+import cloudTrail.client.ratelimit.RateLimitedLookupEvents;
+import cloudTrail.client.ratelimit.RateLimiterSettings;
+import cloudTrail.enrichment.EnrichmentResolver;
+import cloudTrail.enrichment.EnrichmentSettings;
+import cloudTrail.enrichment.EventEnrichment;
+import cloudTrail.fanin.CloudTrailFanIn;
+import cloudTrail.fanin.PollingTarget;
+import cloudTrail.filter.EventFilter;
+import cloudTrail.filter.FilterPlan;
+import cloudTrail.filter.FilterPlanner;
+import cloudTrail.lease.FileLeaseStore;
+import cloudTrail.lease.LeaseCoordinator;
+import cloudTrail.lease.LeaseSettings;
+import cloudTrail.lease.LeaseStore;
+import cloudTrail.metrics.CloudTrailMetrics;
+import cloudTrail.metrics.InstrumentedLookupEvents;
 import cloudTrail.pipeline.CloudTrailPipeline;
+import cloudTrail.pipeline.PipelineSettings;
+import cloudTrail.pipeline.aggregation.AggregationSettings;
+import cloudTrail.pipeline.dedup.DeduplicationSettings;
+import cloudTrail.pipeline.dedup.EventIdDeduplicator;
+import cloudTrail.pipeline.retry.RetrySettings;
+import cloudTrail.poller.PollerSettings;
+import cloudTrail.poller.PollerSource;
 import cloudTrail.service.publishers.handlers.CloudTrailEventHandler;
+import cloudTrail.service.publishers.handlers.BlockingEventHandler;
 import cloudTrail.service.publishers.handlers.EventHandler;
+import cloudTrail.service.publishers.handlers.VirtualThreadEventHandler;
+import cloudTrail.service.publishers.publisher.ArchivePublisher;
+import cloudTrail.service.publishers.publisher.EventPublisher;
+import cloudTrail.service.publishers.publisher.KafkaPublisher;
+import cloudTrail.service.publishers.publisher.NdjsonPublisher;
+import cloudTrail.service.publishers.publisher.NdjsonSettings;
 import cloudTrail.service.publishers.publisher.StandardOutputPublisher;
+import cloudTrail.spool.SpoolSettings;
+import cloudTrail.spool.SpoolingBuffer;
+import org.apache.kafka.clients.producer.Producer;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cloudtrail.CloudTrailAsyncClient;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class CloutTrailConfigFactory {
+    private static final int FAN_IN_PREFETCH = 100;
+    private static final int MAX_BLOCKING_CALLS = 1000;
+
+    private static CheckpointStore checkpointStore;
+    private static CheckpointStore sharedCheckpointStore;
+    private static AdaptiveRateLimiter rateLimiter;
+    private static CloudTrailMetrics metrics;
+    private static CloudTrailClients cloudTrailClients;
+    private static final Map<String, SpoolingBuffer> spools = new HashMap<>();
+    private static EventArchive archive;
+    private static LeaseStore leaseStore;
+    private static EventPublisher deadLetterPublisher;
+
+    /**
+     * Every client shares the HTTP client and event loop of {@link #getCloudTrailClients()}.
+     */
+    public static synchronized CloudTrailClients getCloudTrailClients() {
+        if (cloudTrailClients == null) {
+            cloudTrailClients = new CloudTrailClients();
+            Runtime.getRuntime().addShutdownHook(new Thread(cloudTrailClients::close));
+        }
+        return cloudTrailClients;
+    }
 
+    /**
+     * Client of the region given by the {@code cloudtrail.region} system property, us-east-1 by default.
+     */
     public static CloudTrailAsyncClient getCloudTrailAsyncClient() {
-        Region region = Region.US_EAST_1;
-        return CloudTrailAsyncClient.builder()
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .region(region)
-                .build();
+        Region region = Region.of(System.getProperty("cloudtrail.region", Region.US_EAST_1.id()));
+        return getCloudTrailClients().create(region, EnvironmentVariableCredentialsProvider.create());
     }
 
     public static CTAsyncClient getCtAsyncClient() {
         return new CTAsyncClient(getCloudTrailAsyncClient());
     }
 
+    /**
+     * The limit of LookupEvents applies to the whole account, so every poller shares the same limiter.
+     */
+    public static synchronized AdaptiveRateLimiter getRateLimiter() {
+        if (rateLimiter == null) {
+            rateLimiter = new AdaptiveRateLimiter(RateLimiterSettings.defaults());
+        }
+        return rateLimiter;
+    }
+
+    public static synchronized CloudTrailMetrics getMetrics() {
+        if (metrics == null) {
+            metrics = new CloudTrailMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * The latency is measured around the CloudTrail client, without the wait of the rate limiter.
+     */
+    public static LookupEvents getLookupEvents() {
+        return new RateLimitedLookupEvents(new InstrumentedLookupEvents(getCtAsyncClient(), getMetrics()), getRateLimiter());
+    }
+
     public static EventHandler getCloudTrailEventHandler() {
         return new CloudTrailEventHandler(getStandardOutputPublisher());
     }
 
+    /**
+     * Runs a blocking handler on virtual threads, with up to 1000 calls in flight.
+     */
+    public static VirtualThreadEventHandler getVirtualThreadEventHandler(BlockingEventHandler blockingEventHandler) {
+        return new VirtualThreadEventHandler(blockingEventHandler, MAX_BLOCKING_CALLS);
+    }
+
     public static StandardOutputPublisher getStandardOutputPublisher() {
         return new StandardOutputPublisher();
     }
 
+    /**
+     * Events are appended to the file named by the {@code cloudtrail.ndjson.file} system property,
+     * or written to the standard output when it is not set.
+     */
+    public static NdjsonPublisher getNdjsonPublisher() {
+        String file = System.getProperty("cloudtrail.ndjson.file");
+        NdjsonPublisher publisher = new NdjsonPublisher(NdjsonSettings.builder()
+                .file(file == null ? null : Paths.get(file))
+                .build());
+        Runtime.getRuntime().addShutdownHook(new Thread(publisher::close));
+        return publisher;
+    }
+
+    /**
+     * Brokers and topic are read from the {@code kafka.bootstrap.servers} and {@code kafka.topic} system properties.
+     */
+    public static KafkaPublisher getKafkaPublisher() {
+        return new KafkaPublisher(
+                KafkaPublisher.createProducer(System.getProperty("kafka.bootstrap.servers", "localhost:9092")),
+                System.getProperty("kafka.topic", "cloudtrail-events")
+        );
+    }
+
+    /**
+     * A single archive is shared by the whole application, the directory can be changed with the
+     * {@code cloudtrail.archive.dir} system property.
+     */
+    public static synchronized EventArchive getArchive() {
+        if (archive == null) {
+            archive = new EventArchive(ArchiveSettings.builder()
+                    .directory(Paths.get(System.getProperty("cloudtrail.archive.dir", "archive")))
+                    .build());
+            Runtime.getRuntime().addShutdownHook(new Thread(archive::close));
+        }
+        return archive;
+    }
+
+    public static ArchivePublisher getArchivePublisher() {
+        return new ArchivePublisher(getArchive());
+    }
+
+    /**
+     * Events out of retries are published to the {@code kafka.deadletter.topic} topic when the property is set,
+     * they are logged and dropped otherwise. A single producer is shared by every pipeline.
+     */
+    public static synchronized EventPublisher getDeadLetterPublisher() {
+        String topic = System.getProperty("kafka.deadletter.topic");
+        if (topic == null) {
+            return null;
+        }
+        if (deadLetterPublisher == null) {
+            Producer<String, String> producer =
+                    KafkaPublisher.createProducer(System.getProperty("kafka.bootstrap.servers", "localhost:9092"));
+            Runtime.getRuntime().addShutdownHook(new Thread(producer::close));
+            deadLetterPublisher = new KafkaPublisher(producer, topic);
+        }
+        return deadLetterPublisher;
+    }
+
+    /**
+     * A single store is shared by the whole application, the directory can be changed with the
+     * {@code cloudtrail.checkpoint.dir} system property.
+     */
+    public static synchronized CheckpointStore getCheckpointStore() {
+        if (checkpointStore == null) {
+            checkpointStore = new FileCheckpointStore(Paths.get(System.getProperty("cloudtrail.checkpoint.dir", "checkpoints")));
+            Runtime.getRuntime().addShutdownHook(new Thread(checkpointStore::close));
+        }
+        return checkpointStore;
+    }
+
+    /**
+     * Checkpoints of the leased targets, shared by the instances running on this machine through the
+     * {@code cloudtrail.checkpoint.shared.dir} directory, so a target handed over resumes where it stopped.
+     */
+    public static synchronized CheckpointStore getSharedCheckpointStore() {
+        if (sharedCheckpointStore == null) {
+            sharedCheckpointStore = new SharedFileCheckpointStore(
+                    Paths.get(System.getProperty("cloudtrail.checkpoint.shared.dir", "shared-checkpoints")));
+        }
+        return sharedCheckpointStore;
+    }
+
+    /**
+     * A spool has a single consumer, so every stream gets its own spool in a sub directory named after it.
+     * The parent directory can be changed with the {@code cloudtrail.spool.dir} system property.
+     */
+    public static synchronized SpoolingBuffer getSpool(String streamId) {
+        return spools.computeIfAbsent(streamId, id -> {
+            SpoolingBuffer spool = new SpoolingBuffer(SpoolSettings.builder()
+                    .directory(Paths.get(System.getProperty("cloudtrail.spool.dir", "spool"))
+                            .resolve(id.replaceAll("[^A-Za-z0-9._-]", "_")))
+                    .build());
+            Runtime.getRuntime().addShutdownHook(new Thread(spool::close));
+            return spool;
+        });
+    }
+
     public static CloudTrailPipeline getCloudTrailPipelineFactory() {
-        return new CloudTrailPipeline(getCtAsyncClient(), getCloudTrailEventHandler());
+        return getCloudTrailPipelineFactory(PollerSettings.defaults());
+    }
+
+    public static CloudTrailPipeline getCloudTrailPipelineFactory(PollerSettings pollerSettings) {
+        return new CloudTrailPipeline(
+                getLookupEvents(),
+                getCloudTrailEventHandler(),
+                pollerSettings,
+                getCheckpointStore(),
+                pipelineSettings(pollerSettings.getStreamId()).build()
+        );
+    }
+
+    public static EventEnrichment getEventEnrichment(EnrichmentResolver resolver) {
+        return new EventEnrichment(resolver, EnrichmentSettings.defaults());
+    }
+
+    /**
+     * The handler reads the attributes of the principals and resources of the events from the same enrichment.
+     */
+    public static CloudTrailPipeline getEnrichedPipeline(
+            PollerSettings pollerSettings,
+            EventEnrichment enrichment,
+            EventHandler eventHandler
+    ) {
+        return new CloudTrailPipeline(
+                getLookupEvents(),
+                eventHandler,
+                pollerSettings,
+                getCheckpointStore(),
+                pipelineSettings(pollerSettings.getStreamId()).enrichment(enrichment).build()
+        );
+    }
+
+    /**
+     * Publishes the summaries of the aggregation instead of, or alongside, the handled events.
+     * The events polled again are dropped by a deduplicator, the poller tails the stream once it walked the history,
+     * going back at least the allowed lateness, and the windows close as the poller's watermark moves, held back
+     * by the events spooled or being handled. The events are not retried, a dead lettered event would never be
+     * counted and would hold the windows open.
+     */
+    public static CloudTrailPipeline getAggregatingPipeline(
+            PollerSettings pollerSettings,
+            EventHandler eventHandler,
+            AggregationSettings aggregation
+    ) {
+        Duration overlap = pollerSettings.getTailOverlap().compareTo(aggregation.getAllowedLateness()) >= 0
+                ? pollerSettings.getTailOverlap()
+                : aggregation.getAllowedLateness();
+        PollerSource source = new PollerSource(
+                getLookupEvents(),
+                pollerSettings.toBuilder().tail(true).tailOverlap(overlap).build(),
+                getCheckpointStore(),
+                getMetrics()
+        );
+        return new CloudTrailPipeline(
+                source,
+                eventHandler,
+                pipelineSettings(pollerSettings.getStreamId())
+                        .retry(null)
+                        .deduplicator(new EventIdDeduplicator(DeduplicationSettings.defaults()))
+                        .aggregation(aggregation.toBuilder().watermark(source::getWatermark).build())
+                        .build()
+        );
+    }
+
+    /**
+     * Polls only the events matching the filter, see {@link FilterPlanner}.
+     */
+    public static CloudTrailPipeline getCloudTrailPipelineFactory(PollerSettings pollerSettings, EventFilter eventFilter) {
+        FilterPlan plan = FilterPlanner.plan(eventFilter);
+        return new CloudTrailPipeline(
+                getLookupEvents(),
+                getCloudTrailEventHandler(),
+                pollerSettings.toBuilder().lookupAttributes(plan.getLookupAttributes()).build(),
+                getCheckpointStore(),
+                pipelineSettings(pollerSettings.getStreamId()).filter(plan.getPredicate()).build()
+        );
+    }
+
+    /**
+     * Polls every target with its own client, rate limiter and checkpoints, see {@link CloudTrailFanIn}.
+     */
+    public static CloudTrailPipeline getCloudTrailFanInPipeline(List<PollingTarget> targets, PollerSettings pollerSettings) {
+        CloudTrailFanIn fanIn = new CloudTrailFanIn(
+                targets,
+                target -> new InstrumentedLookupEvents(
+                        new CTAsyncClient(getCloudTrailClients().create(target.getRegion(), target.getCredentialsProvider())),
+                        getMetrics()
+                ),
+                pollerSettings,
+                getCheckpointStore(),
+                getMetrics(),
+                FAN_IN_PREFETCH
+        );
+        return new CloudTrailPipeline(
+                fanIn,
+                getCloudTrailEventHandler(),
+                pipelineSettings(pollerSettings.getStreamId()).build()
+        );
+    }
+
+    /**
+     * The leases are shared by the instances running on this machine through the {@code cloudtrail.lease.dir} directory.
+     */
+    public static synchronized LeaseStore getLeaseStore() {
+        if (leaseStore == null) {
+            leaseStore = new FileLeaseStore(Paths.get(System.getProperty("cloudtrail.lease.dir", "leases")));
+        }
+        return leaseStore;
+    }
+
+    /**
+     * Polls the targets leased by this instance, every target being a unit of work, see {@link LeaseCoordinator}.
+     * The coordinator must be started, and closed to hand the targets over to the other instances.
+     */
+    public static LeaseCoordinator getLeaseCoordinator(List<PollingTarget> targets, PollerSettings pollerSettings) {
+        Map<String, PollingTarget> targetsByUnit = new LinkedHashMap<>();
+        for (PollingTarget target : targets) {
+            targetsByUnit.put(target.getStreamId(), target);
+        }
+        return new LeaseCoordinator(
+                getLeaseStore(),
+                List.copyOf(targetsByUnit.keySet()),
+                unit -> leasedPipeline(targetsByUnit.get(unit), pollerSettings).get().subscribe(),
+                LeaseSettings.defaults()
+        );
+    }
+
+    /**
+     * Every leased target has its own pipeline and spool, so it can be stopped on its own.
+     */
+    private static CloudTrailPipeline leasedPipeline(PollingTarget target, PollerSettings pollerSettings) {
+        CloudTrailFanIn fanIn = new CloudTrailFanIn(
+                Collections.singletonList(target),
+                leased -> new InstrumentedLookupEvents(
+                        new CTAsyncClient(getCloudTrailClients().create(leased.getRegion(), leased.getCredentialsProvider())),
+                        getMetrics()
+                ),
+                pollerSettings,
+                getSharedCheckpointStore(),
+                getMetrics(),
+                FAN_IN_PREFETCH
+        );
+        return new CloudTrailPipeline(
+                fanIn,
+                getCloudTrailEventHandler(),
+                pipelineSettings(pollerSettings.getStreamId() + "/" + target.getStreamId()).build()
+        );
+    }
+
+    private static PipelineSettings.PipelineSettingsBuilder pipelineSettings(String streamId) {
+        return PipelineSettings.builder()
+                .metrics(getMetrics())
+                .spool(getSpool(streamId))
+                .retry(RetrySettings.builder().deadLetterPublisher(getDeadLetterPublisher()).build());
     }
 }
@@ -0,0 +1,68 @@
+package cloudTrail.fanin;
+
+import cloudTrail.checkpoint.CheckpointStore;
+import cloudTrail.client.LookupEvents;
+import cloudTrail.client.ratelimit.AdaptiveRateLimiter;
+import cloudTrail.client.ratelimit.RateLimitedLookupEvents;
+import cloudTrail.metrics.CloudTrailMetrics;
+import cloudTrail.poller.PollerSettings;
+import cloudTrail.poller.PollerSource;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Polls several accounts and regions and merges their events into one stream.
+ *
+ * <p>Every {@link PollingTarget} has its own poller, rate limiter and checkpoints, the latter under
+ * {@code <streamId>/<account>/<region>}. The events are merged by {@link WeightedFairMerge},
+ * so a busy target cannot starve the others.
+ */
+public class CloudTrailFanIn implements Supplier<Flux<Event>> {
+
+    private final List<Supplier<Flux<Event>>> sources = new ArrayList<>();
+    private final int[] weights;
+    private final int prefetch;
+
+    /**
+     * @param lookupEvents builds the client of a target, see {@link cloudTrail.client.CloudTrailClients}
+     * @param metrics      monitors the demand of the poller of every target, optional
+     * @param prefetch     events buffered per target, bounds the events polled ahead of the merge
+     */
+    public CloudTrailFanIn(
+            List<PollingTarget> targets,
+            Function<PollingTarget, LookupEvents> lookupEvents,
+            PollerSettings pollerSettings,
+            CheckpointStore checkpointStore,
+            CloudTrailMetrics metrics,
+            int prefetch
+    ) {
+        this.weights = new int[targets.size()];
+        this.prefetch = prefetch;
+        for (int i = 0; i < targets.size(); i++) {
+            PollingTarget target = targets.get(i);
+            LookupEvents rateLimited = new RateLimitedLookupEvents(
+                    lookupEvents.apply(target),
+                    new AdaptiveRateLimiter(target.getRateLimiterSettings())
+            );
+            PollerSettings targetSettings = pollerSettings.toBuilder()
+                    .streamId(pollerSettings.getStreamId() + "/" + target.getStreamId())
+                    .build();
+            sources.add(new PollerSource(rateLimited, targetSettings, checkpointStore, metrics));
+            weights[i] = target.getWeight();
+        }
+    }
+
+    @Override
+    public Flux<Event> get() {
+        List<Flux<Event>> fluxes = new ArrayList<>(sources.size());
+        for (Supplier<Flux<Event>> source : sources) {
+            fluxes.add(source.get());
+        }
+        return WeightedFairMerge.merge(fluxes, weights, prefetch);
+    }
+}
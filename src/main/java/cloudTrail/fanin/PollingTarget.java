@@ -0,0 +1,42 @@
+package cloudTrail.fanin;
+
+import cloudTrail.client.ratelimit.RateLimiterSettings;
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+
+/**
+ * An account and region polled by a {@link CloudTrailFanIn}.
+ */
+@Value
+@Builder
+public class PollingTarget {
+
+    /**
+     * Name of the account, part of the checkpoint stream id of the target.
+     */
+    String account;
+    Region region;
+
+    /**
+     * Credentials of the account, for instance a role assumed in it.
+     */
+    AwsCredentialsProvider credentialsProvider;
+
+    /**
+     * Share of the merged events given to this target when several targets have events ready.
+     */
+    @Builder.Default
+    int weight = 1;
+
+    /**
+     * The LookupEvents limit applies per account and region, so every target has its own limiter.
+     */
+    @Builder.Default
+    RateLimiterSettings rateLimiterSettings = RateLimiterSettings.defaults();
+
+    public String getStreamId() {
+        return account + "/" + region.id();
+    }
+}
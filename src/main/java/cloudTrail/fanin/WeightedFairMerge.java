@@ -0,0 +1,182 @@
+package cloudTrail.fanin;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges several fluxes with deficit round robin.
+ *
+ * <p>Every source buffers up to {@code prefetch} elements. The sources are visited in turn, a visit grants a source
+ * as many elements as its weight, and a source with nothing buffered loses its unused credit.
+ * So when every source has elements ready, each one gets a share of the downstream demand proportional to its weight,
+ * whatever their rates are, and a busy source only fills its own buffer.
+ *
+ * <p>A failing source is logged and dropped, the merge completes once every source completed.
+ */
+@Slf4j
+public class WeightedFairMerge {
+
+    public static <T> Flux<T> merge(List<Flux<T>> sources, int[] weights, int prefetch) {
+        if (sources.size() != weights.length) {
+            throw new IllegalArgumentException("Expected one weight per source");
+        }
+        return Flux.create(sink -> new Merger<>(sink, weights, prefetch).subscribe(sources));
+    }
+
+    private static class Merger<T> {
+        private final FluxSink<T> sink;
+        private final List<Source<T>> sources;
+        private final AtomicInteger wip = new AtomicInteger();
+        private int cursor;
+
+        /**
+         * Whether the source under the cursor was already granted its weight for the current visit.
+         */
+        private boolean granted;
+
+        Merger(FluxSink<T> sink, int[] weights, int prefetch) {
+            this.sink = sink;
+            this.sources = new ArrayList<>(weights.length);
+            for (int weight : weights) {
+                sources.add(new Source<>(this, Math.max(1, weight), Math.max(1, prefetch)));
+            }
+        }
+
+        /**
+         * Subscribes every source before the first element is emitted,
+         * so a source emitting on subscription does not get ahead of the others.
+         */
+        void subscribe(List<Flux<T>> fluxes) {
+            wip.incrementAndGet();
+            sink.onRequest(ignored -> drain());
+            sink.onDispose(() -> sources.forEach(BaseSubscriber::dispose));
+            for (int i = 0; i < fluxes.size(); i++) {
+                fluxes.get(i).subscribe(sources.get(i));
+            }
+            drainLoop();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() == 0) {
+                drainLoop();
+            }
+        }
+
+        private void drainLoop() {
+            int missed = 1;
+            do {
+                emit();
+                if (isCompleted()) {
+                    sink.complete();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Visits the sources from the cursor until the demand is met or a whole round emitted nothing.
+         */
+        private void emit() {
+            int idleVisits = 0;
+            while (!sink.isCancelled() && sink.requestedFromDownstream() > 0 && idleVisits < sources.size()) {
+                Source<T> source = sources.get(cursor);
+                if (!granted) {
+                    source.deficit += source.weight;
+                    granted = true;
+                }
+
+                boolean emitted = false;
+                T element;
+                while (source.deficit > 0 && sink.requestedFromDownstream() > 0 && (element = source.queue.poll()) != null) {
+                    source.deficit--;
+                    sink.next(element);
+                    source.consumed();
+                    emitted = true;
+                }
+                idleVisits = emitted ? 0 : idleVisits + 1;
+
+                if (source.deficit > 0 && !source.queue.isEmpty()) {
+                    // out of demand, the visit resumes with the remaining credit
+                    return;
+                }
+                if (source.queue.isEmpty()) {
+                    source.deficit = 0;
+                }
+                granted = false;
+                cursor = (cursor + 1) % sources.size();
+            }
+        }
+
+        private boolean isCompleted() {
+            for (Source<T> source : sources) {
+                if (!source.done || !source.queue.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Source<T> extends BaseSubscriber<T> {
+        private final Merger<T> merger;
+        private final int weight;
+        private final int prefetch;
+        private final int limit;
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private volatile boolean done;
+
+        /**
+         * Only accessed by the draining thread.
+         */
+        private int deficit;
+        private int consumed;
+
+        Source(Merger<T> merger, int weight, int prefetch) {
+            this.merger = merger;
+            this.weight = weight;
+            this.prefetch = prefetch;
+            this.limit = Math.max(1, prefetch / 2);
+        }
+
+        void consumed() {
+            if (++consumed == limit) {
+                request(consumed);
+                consumed = 0;
+            }
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(prefetch);
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            queue.offer(value);
+            merger.drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            done = true;
+            merger.drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            log.error("A merged source failed, it is dropped from the merge", throwable);
+            done = true;
+            merger.drain();
+        }
+    }
+}
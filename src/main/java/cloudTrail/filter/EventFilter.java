@@ -0,0 +1,61 @@
+package cloudTrail.filter;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Declarative filter of the polled events.
+ *
+ * <p>An event matches when it matches every configured criterion, and a criterion with several values matches
+ * any of them. Empty criteria match every event.
+ *
+ * <p>See {@link FilterPlanner} for the criteria sent to CloudTrail and the ones evaluated by the pipeline.
+ */
+@Value
+@Builder
+public class EventFilter {
+
+    @Singular
+    Set<String> eventIds;
+
+    @Singular
+    Set<String> eventNames;
+
+    @Singular
+    Set<String> eventSources;
+
+    @Singular
+    Set<String> usernames;
+
+    @Singular
+    Set<String> accessKeyIds;
+
+    @Singular
+    Set<String> resourceTypes;
+
+    @Singular
+    Set<String> resourceNames;
+
+    /**
+     * Only read-only or only mutating events, both when null.
+     */
+    Boolean readOnly;
+
+    /**
+     * Expected values of fields of the CloudTrail payload, keyed by dot separated path, e.g. {@code sourceIPAddress}.
+     * These are always evaluated by the pipeline.
+     */
+    @Singular
+    Map<String, String> payloadFields;
+
+    /**
+     * Any other condition, always evaluated by the pipeline. Optional.
+     */
+    Predicate<Event> predicate;
+}
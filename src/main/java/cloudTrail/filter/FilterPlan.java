@@ -0,0 +1,27 @@
+package cloudTrail.filter;
+
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttribute;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * How an {@link EventFilter} is evaluated.
+ */
+@Value
+@Builder
+public class FilterPlan {
+
+    /**
+     * One polled stream per attribute, a single unfiltered stream when empty.
+     */
+    List<LookupAttribute> lookupAttributes;
+
+    /**
+     * Condition evaluated by the pipeline on every polled event.
+     */
+    Predicate<Event> predicate;
+}
@@ -0,0 +1,164 @@
+package cloudTrail.filter;
+
+import cloudTrail.projection.JsonProjection;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttribute;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttributeKey;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Splits an {@link EventFilter} between CloudTrail and the pipeline.
+ *
+ * <p>LookupEvents accepts a single attribute with a single value per call. The most selective criterion
+ * is pushed down as one polled stream per value, as long as it does not need more than
+ * {@code maxParallelQueries} streams, all the streams being polled concurrently. An event can have several resources,
+ * so the resource criteria are only pushed down with a single value, otherwise an event with several of the values
+ * would be polled, and delivered, once per stream.
+ * Every criterion, including the pushed down one, is compiled into the predicate evaluated by the pipeline,
+ * so the result does not depend on the {@link cloudTrail.client.LookupEvents} honouring the attributes.
+ * The predicate checks the event fields first and scans the payload last.
+ */
+public class FilterPlanner {
+
+    public static final int DEFAULT_MAX_PARALLEL_QUERIES = 8;
+
+    /**
+     * Attributes an event can have several values of.
+     */
+    private static final Set<LookupAttributeKey> MULTI_VALUED = EnumSet.of(
+            LookupAttributeKey.RESOURCE_NAME,
+            LookupAttributeKey.RESOURCE_TYPE
+    );
+
+    public static FilterPlan plan(EventFilter filter) {
+        return plan(filter, DEFAULT_MAX_PARALLEL_QUERIES);
+    }
+
+    public static FilterPlan plan(EventFilter filter, int maxParallelQueries) {
+        return FilterPlan.builder()
+                .lookupAttributes(pushDown(filter, maxParallelQueries))
+                .predicate(compile(filter))
+                .build();
+    }
+
+    /**
+     * Criteria which can be pushed down, from the most selective one to the least selective one.
+     */
+    private static Map<LookupAttributeKey, Set<String>> candidates(EventFilter filter) {
+        Map<LookupAttributeKey, Set<String>> candidates = new LinkedHashMap<>();
+        candidates.put(LookupAttributeKey.EVENT_ID, filter.getEventIds());
+        candidates.put(LookupAttributeKey.ACCESS_KEY_ID, filter.getAccessKeyIds());
+        candidates.put(LookupAttributeKey.RESOURCE_NAME, filter.getResourceNames());
+        candidates.put(LookupAttributeKey.USERNAME, filter.getUsernames());
+        candidates.put(LookupAttributeKey.EVENT_NAME, filter.getEventNames());
+        candidates.put(LookupAttributeKey.RESOURCE_TYPE, filter.getResourceTypes());
+        candidates.put(LookupAttributeKey.EVENT_SOURCE, filter.getEventSources());
+        if (filter.getReadOnly() != null) {
+            candidates.put(LookupAttributeKey.READ_ONLY, Collections.singleton(filter.getReadOnly().toString()));
+        }
+        return candidates;
+    }
+
+    private static List<LookupAttribute> pushDown(EventFilter filter, int maxParallelQueries) {
+        for (Map.Entry<LookupAttributeKey, Set<String>> candidate : candidates(filter).entrySet()) {
+            Set<String> values = candidate.getValue();
+            if (values.isEmpty() || values.size() > maxParallelQueries
+                    || (values.size() > 1 && MULTI_VALUED.contains(candidate.getKey()))) {
+                continue;
+            }
+
+            List<LookupAttribute> lookupAttributes = new ArrayList<>(values.size());
+            for (String value : values) {
+                lookupAttributes.add(LookupAttribute.builder()
+                        .attributeKey(candidate.getKey())
+                        .attributeValue(value)
+                        .build());
+            }
+            return lookupAttributes;
+        }
+        return Collections.emptyList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Event> compile(EventFilter filter) {
+        List<Predicate<Event>> conditions = new ArrayList<>();
+        addIfAny(conditions, filter.getEventIds(), Event::eventId);
+        addIfAny(conditions, filter.getEventNames(), Event::eventName);
+        addIfAny(conditions, filter.getEventSources(), Event::eventSource);
+        addIfAny(conditions, filter.getUsernames(), Event::username);
+        addIfAny(conditions, filter.getAccessKeyIds(), Event::accessKeyId);
+        if (filter.getReadOnly() != null) {
+            String readOnly = filter.getReadOnly().toString();
+            conditions.add(event -> readOnly.equalsIgnoreCase(event.readOnly()));
+        }
+        if (!filter.getResourceTypes().isEmpty()) {
+            Set<String> resourceTypes = filter.getResourceTypes();
+            conditions.add(event -> anyResource(event, resource -> resourceTypes.contains(resource.resourceType())));
+        }
+        if (!filter.getResourceNames().isEmpty()) {
+            Set<String> resourceNames = filter.getResourceNames();
+            conditions.add(event -> anyResource(event, resource -> resourceNames.contains(resource.resourceName())));
+        }
+        if (!filter.getPayloadFields().isEmpty()) {
+            conditions.add(payloadCondition(filter.getPayloadFields()));
+        }
+        if (filter.getPredicate() != null) {
+            conditions.add(filter.getPredicate());
+        }
+
+        Predicate<Event>[] compiled = conditions.toArray(new Predicate[0]);
+        return event -> {
+            for (Predicate<Event> condition : compiled) {
+                if (!condition.test(event)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static void addIfAny(List<Predicate<Event>> conditions, Set<String> values, Function<Event, String> field) {
+        if (!values.isEmpty()) {
+            conditions.add(event -> values.contains(field.apply(event)));
+        }
+    }
+
+    private static boolean anyResource(Event event, Predicate<Resource> condition) {
+        for (Resource resource : event.resources()) {
+            if (condition.test(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Predicate<Event> payloadCondition(Map<String, String> payloadFields) {
+        List<String> paths = new ArrayList<>(payloadFields.keySet());
+        JsonProjection projection = JsonProjection.compile(paths);
+        String[] expected = new String[paths.size()];
+        for (int i = 0; i < paths.size(); i++) {
+            expected[i] = payloadFields.get(paths.get(i));
+        }
+
+        return event -> {
+            String[] values = projection.extract(event.cloudTrailEvent());
+            for (int i = 0; i < expected.length; i++) {
+                if (!Objects.equals(expected[i], values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+}
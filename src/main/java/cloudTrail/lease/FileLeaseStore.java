@@ -0,0 +1,199 @@
+package cloudTrail.lease;
+
+import models.Lease;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link LeaseStore} shared by the processes of a single machine through a directory.
+ *
+ * <p>Every operation holds an exclusive lock on {@code leases.lock} while it reads the state file, and replaces it
+ * atomically when it changed, so a process stopped in the middle of a write never leaves a torn state.
+ * File locks are held per process, the instances of a same process are serialized by a monitor per directory.
+ */
+public class FileLeaseStore implements LeaseStore {
+    private static final String LOCK_FILE = "leases.lock";
+    private static final String STATE_FILE = "leases.dat";
+    private static final String TEMPORARY_FILE = "leases.dat.tmp";
+    private static final int VERSION = 1;
+    private static final Map<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path lockFile;
+    private final Path stateFile;
+    private final Path temporaryFile;
+    private final Object monitor;
+
+    public FileLeaseStore(Path directory) {
+        Path absolute = directory.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(absolute);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the lease store at " + absolute, e);
+        }
+        this.lockFile = absolute.resolve(LOCK_FILE);
+        this.stateFile = absolute.resolve(STATE_FILE);
+        this.temporaryFile = absolute.resolve(TEMPORARY_FILE);
+        this.monitor = MONITORS.computeIfAbsent(absolute, ignored -> new Object());
+    }
+
+    @Override
+    public Map<String, Lease> leases() {
+        return locked(state -> new HashMap<>(state.leases));
+    }
+
+    @Override
+    public Optional<Lease> compareAndSet(Lease expected, Lease replacement) {
+        return locked(state -> {
+            if (!Objects.equals(state.leases.get(replacement.getLeaseKey()), expected)) {
+                return Optional.empty();
+            }
+            state.leases.put(replacement.getLeaseKey(), replacement);
+            state.changed = true;
+            return Optional.of(replacement);
+        });
+    }
+
+    @Override
+    public void heartbeat(String instanceId, Instant aliveUntil) {
+        locked(state -> {
+            Instant now = Instant.now();
+            state.members.values().removeIf(expiry -> expiry.isBefore(now));
+            state.members.put(instanceId, aliveUntil);
+            state.changed = true;
+            return null;
+        });
+    }
+
+    @Override
+    public void leave(String instanceId) {
+        locked(state -> {
+            state.changed = state.members.remove(instanceId) != null;
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, Instant> members() {
+        return locked(state -> new HashMap<>(state.members));
+    }
+
+    @Override
+    public void close() {
+        // every operation opens and closes its own files
+    }
+
+    private <T> T locked(Function<State, T> operation) {
+        synchronized (monitor) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, CREATE, WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                State state = read();
+                T result = operation.apply(state);
+                if (state.changed) {
+                    write(state);
+                }
+                return result;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to access the leases at " + stateFile, e);
+            }
+        }
+    }
+
+    private State read() throws IOException {
+        State state = new State();
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(stateFile);
+        } catch (NoSuchFileException e) {
+            return state;
+        }
+
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported lease store version " + version);
+        }
+        int leases = input.readInt();
+        for (int i = 0; i < leases; i++) {
+            String leaseKey = input.readUTF();
+            String owner = input.readBoolean() ? input.readUTF() : null;
+            Lease lease = Lease.builder()
+                    .leaseKey(leaseKey)
+                    .owner(owner)
+                    .expiresAt(readInstant(input))
+                    .epoch(input.readLong())
+                    .build();
+            state.leases.put(leaseKey, lease);
+        }
+        int members = input.readInt();
+        for (int i = 0; i < members; i++) {
+            state.members.put(input.readUTF(), readInstant(input));
+        }
+        return state;
+    }
+
+    private void write(State state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(VERSION);
+        output.writeInt(state.leases.size());
+        for (Lease lease : state.leases.values()) {
+            output.writeUTF(lease.getLeaseKey());
+            output.writeBoolean(lease.getOwner() != null);
+            if (lease.getOwner() != null) {
+                output.writeUTF(lease.getOwner());
+            }
+            writeInstant(output, lease.getExpiresAt());
+            output.writeLong(lease.getEpoch());
+        }
+        output.writeInt(state.members.size());
+        for (Map.Entry<String, Instant> member : state.members.entrySet()) {
+            output.writeUTF(member.getKey());
+            writeInstant(output, member.getValue());
+        }
+        output.flush();
+
+        Files.write(temporaryFile, bytes.toByteArray());
+        Files.move(temporaryFile, stateFile, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    /**
+     * Instants keep their nanoseconds, so a lease read back is equal to the one which was written.
+     */
+    private static Instant readInstant(DataInputStream input) throws IOException {
+        long seconds = input.readLong();
+        return Instant.ofEpochSecond(seconds, input.readInt());
+    }
+
+    private static void writeInstant(DataOutputStream output, Instant instant) throws IOException {
+        output.writeLong(instant.getEpochSecond());
+        output.writeInt(instant.getNano());
+    }
+
+    private static class State {
+        private final Map<String, Lease> leases = new HashMap<>();
+        private final Map<String, Instant> members = new HashMap<>();
+        private boolean changed;
+    }
+}
@@ -0,0 +1,229 @@
+package cloudTrail.lease;
+
+import lombok.extern.slf4j.Slf4j;
+import models.Lease;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Spreads units of work, such as (account, region) streams or time windows, over the instances sharing a {@link LeaseStore}.
+ *
+ * <p>Every {@link LeaseSettings#getRenewInterval()} the coordinator heartbeats, renews its leases, claims the free
+ * or expired ones and, while it holds less than its share, steals from the instance holding the most
+ * as long as that instance holds at least two units more than itself, so no lease moves back and forth.
+ * The share of an instance is the number of units divided by the number of live instances, rounded up,
+ * so the work is rebalanced when an instance joins, and picked up once the leases of a leaving instance expire.
+ *
+ * <p>The work of a unit is started when its lease is acquired and disposed when the lease is lost, an instance
+ * learns that a lease was stolen on its next renewal, so a unit may be polled twice for up to one renew interval.
+ * Units handed over resume from the checkpoint store, which must be shared by the instances and read their
+ * latest commits, such as a {@link cloudTrail.checkpoint.SharedFileCheckpointStore}.
+ */
+@Slf4j
+public class LeaseCoordinator implements AutoCloseable {
+
+    private final LeaseStore store;
+    private final List<String> units;
+    private final Function<String, Disposable> worker;
+    private final LeaseSettings settings;
+    private final String instanceId;
+
+    /**
+     * Only accessed while holding the monitor of this coordinator.
+     */
+    private final Map<String, Lease> held = new HashMap<>();
+    private final Map<String, Disposable> running = new HashMap<>();
+    private Scheduler scheduler;
+    private Disposable renewals;
+
+    /**
+     * @param units  keys of the units of work, the same for every instance
+     * @param worker starts the work of a unit, the returned {@link Disposable} stops it
+     */
+    public LeaseCoordinator(LeaseStore store, List<String> units, Function<String, Disposable> worker, LeaseSettings settings) {
+        this.store = store;
+        this.units = new ArrayList<>(units);
+        this.worker = worker;
+        this.settings = settings;
+        this.instanceId = settings.getInstanceId();
+    }
+
+    /**
+     * Rebalances now and then every renew interval.
+     */
+    public synchronized void start() {
+        if (renewals != null) {
+            return;
+        }
+        scheduler = Schedulers.newSingle("lease-coordinator");
+        long intervalMs = settings.getRenewInterval().toMillis();
+        renewals = scheduler.schedulePeriodically(this::rebalanceQuietly, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Heartbeats, renews the leases of this instance, then claims or steals leases up to its share.
+     */
+    public synchronized void rebalance() {
+        Instant now = Instant.now();
+        Instant expiry = now.plus(settings.getLeaseDuration());
+        store.heartbeat(instanceId, expiry);
+        Map<String, Lease> leases = store.leases();
+
+        renew(leases, expiry);
+
+        long live = store.members().values().stream().filter(aliveUntil -> aliveUntil.isAfter(now)).count();
+        int share = (int) ((units.size() + Math.max(1, live) - 1) / Math.max(1, live));
+
+        for (String unit : units) {
+            if (held.size() >= share) {
+                break;
+            }
+            Lease current = leases.get(unit);
+            if (!held.containsKey(unit) && (current == null || current.isFree(now))) {
+                claim(unit, current, expiry).ifPresent(lease -> leases.put(unit, lease));
+            }
+        }
+
+        for (int steals = 0; steals < settings.getMaxStealsPerRenewal() && held.size() < share; steals++) {
+            Lease victim = mostLoadedOwnerLease(leases, now);
+            if (victim == null) {
+                break;
+            }
+            claim(victim.getLeaseKey(), victim, expiry).ifPresent(lease -> {
+                log.info("Took the lease {} from {}", lease.getLeaseKey(), victim.getOwner());
+                leases.put(lease.getLeaseKey(), lease);
+            });
+        }
+    }
+
+    /**
+     * @return the units this instance is working on
+     */
+    public synchronized Set<String> ownedUnits() {
+        return Collections.unmodifiableSet(new HashSet<>(held.keySet()));
+    }
+
+    /**
+     * Stops the work of every unit and releases the leases, so the other instances take them over right away.
+     */
+    @Override
+    public synchronized void close() {
+        if (renewals != null) {
+            renewals.dispose();
+            scheduler.dispose();
+        }
+        Instant now = Instant.now();
+        for (String unit : new ArrayList<>(held.keySet())) {
+            Lease lease = held.get(unit);
+            stop(unit);
+            try {
+                store.compareAndSet(lease, lease.toBuilder().owner(null).expiresAt(now).build());
+            } catch (RuntimeException ex) {
+                log.warn("Failed to release the lease {}, it expires at {}", unit, lease.getExpiresAt(), ex);
+            }
+        }
+        try {
+            store.leave(instanceId);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to leave the lease store", ex);
+        }
+    }
+
+    private void renew(Map<String, Lease> leases, Instant expiry) {
+        for (String unit : new ArrayList<>(held.keySet())) {
+            Lease mine = held.get(unit);
+            Optional<Lease> renewed = mine.equals(leases.get(unit))
+                    ? store.compareAndSet(mine, mine.toBuilder().expiresAt(expiry).build())
+                    : Optional.empty();
+            if (renewed.isPresent()) {
+                held.put(unit, renewed.get());
+                leases.put(unit, renewed.get());
+            } else {
+                log.info("Lost the lease {}", unit);
+                stop(unit);
+            }
+        }
+    }
+
+    private Optional<Lease> claim(String unit, Lease current, Instant expiry) {
+        Lease claimed = Lease.builder()
+                .leaseKey(unit)
+                .owner(instanceId)
+                .expiresAt(expiry)
+                .epoch(current == null ? 1 : current.getEpoch() + 1)
+                .build();
+        Optional<Lease> acquired = store.compareAndSet(current, claimed);
+        acquired.ifPresent(lease -> {
+            held.put(unit, lease);
+            try {
+                running.put(unit, worker.apply(unit));
+            } catch (RuntimeException ex) {
+                log.error("Failed to start the work of {}", unit, ex);
+            }
+        });
+        return acquired;
+    }
+
+    /**
+     * @return a lease of the instance holding the most live leases, null if it does not hold at least two more than this instance
+     */
+    private Lease mostLoadedOwnerLease(Map<String, Lease> leases, Instant now) {
+        Map<String, List<Lease>> byOwner = new HashMap<>();
+        for (String unit : units) {
+            Lease lease = leases.get(unit);
+            if (lease != null && !lease.isFree(now) && !instanceId.equals(lease.getOwner())) {
+                byOwner.computeIfAbsent(lease.getOwner(), owner -> new ArrayList<>()).add(lease);
+            }
+        }
+        List<Lease> mostLoaded = Collections.emptyList();
+        for (List<Lease> owned : byOwner.values()) {
+            if (owned.size() > mostLoaded.size()) {
+                mostLoaded = owned;
+            }
+        }
+        return mostLoaded.size() >= held.size() + 2 ? mostLoaded.get(mostLoaded.size() - 1) : null;
+    }
+
+    private void stop(String unit) {
+        held.remove(unit);
+        Disposable work = running.remove(unit);
+        if (work != null) {
+            work.dispose();
+        }
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (Throwable ex) {
+            log.error("Failed to rebalance the leases", ex);
+            stopExpired();
+        }
+    }
+
+    /**
+     * Without access to the store, the work is stopped once the lease expired, since another instance may take it.
+     */
+    private synchronized void stopExpired() {
+        Instant now = Instant.now();
+        for (String unit : new ArrayList<>(held.keySet())) {
+            if (!held.get(unit).isHeldBy(instanceId, now)) {
+                log.warn("The lease {} expired without being renewed", unit);
+                stop(unit);
+            }
+        }
+    }
+}
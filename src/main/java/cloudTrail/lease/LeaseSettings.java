@@ -0,0 +1,43 @@
+package cloudTrail.lease;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Settings of a {@link LeaseCoordinator}.
+ */
+@Value
+@Builder
+public class LeaseSettings {
+
+    /**
+     * Id of this instance, unique among the instances sharing the lease store.
+     */
+    @Builder.Default
+    String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Time a lease, or a heartbeat, stays valid without being renewed.
+     */
+    @Builder.Default
+    Duration leaseDuration = Duration.ofSeconds(30);
+
+    /**
+     * Time between two renewals, it must be well below {@link #leaseDuration}.
+     */
+    @Builder.Default
+    Duration renewInterval = Duration.ofSeconds(10);
+
+    /**
+     * Maximum number of leases taken from other instances per renewal, so the load moves progressively.
+     */
+    @Builder.Default
+    int maxStealsPerRenewal = 1;
+
+    public static LeaseSettings defaults() {
+        return LeaseSettings.builder().build();
+    }
+}
@@ -0,0 +1,49 @@
+package cloudTrail.lease;
+
+import models.Lease;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Shared state of the instances polling the same streams: the leases of the units of work,
+ * and the heartbeats of the live instances.
+ *
+ * <p>Every change of a lease is a compare and set, so two instances can never both believe they claimed a lease.
+ * Implementations must be thread safe and consistent for every instance sharing the store.
+ */
+public interface LeaseStore extends AutoCloseable {
+
+    /**
+     * @return the leases by key, a unit which was never claimed has no lease
+     */
+    Map<String, Lease> leases();
+
+    /**
+     * Replaces a lease, only if it was not changed since it was read.
+     *
+     * @param expected    lease as it was read, null if the unit was never claimed
+     * @param replacement new state of the lease
+     * @return the stored lease, empty if the lease was changed by another instance
+     */
+    Optional<Lease> compareAndSet(Lease expected, Lease replacement);
+
+    /**
+     * Records that an instance is alive until the given time.
+     */
+    void heartbeat(String instanceId, Instant aliveUntil);
+
+    /**
+     * Forgets an instance leaving gracefully, so the others rebalance without waiting for its heartbeat to expire.
+     */
+    void leave(String instanceId);
+
+    /**
+     * @return the last heartbeat of every instance, instances which stopped without leaving may still be listed
+     */
+    Map<String, Instant> members();
+
+    @Override
+    void close();
+}
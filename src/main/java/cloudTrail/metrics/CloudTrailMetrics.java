@@ -0,0 +1,130 @@
+package cloudTrail.metrics;
+
+import cloudTrail.poller.CloudTrailPoller;
+import lombok.extern.slf4j.Slf4j;
+import models.MetricsSnapshot;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Metrics of the hot path, from the LookupEvents calls to the handler.
+ *
+ * <p>Counters are {@link LongAdder}s and distributions are {@link Histogram}s, so recording neither locks
+ * nor allocates. Values are read with {@link #snapshot()}, or pushed periodically with {@link #report(Duration)}.
+ */
+@Slf4j
+public class CloudTrailMetrics {
+
+    private final LongAdder lookupCalls = new LongAdder();
+    private final LongAdder lookupErrors = new LongAdder();
+    private final LongAdder emptyPages = new LongAdder();
+    private final LongAdder eventsPolled = new LongAdder();
+    private final LongAdder eventsHandled = new LongAdder();
+    private final LongAdder handlerErrors = new LongAdder();
+    private final Histogram lookupLatencyMicros = new Histogram();
+    private final Histogram eventsPerPage = new Histogram();
+    private final Histogram handlerLatencyMicros = new Histogram();
+    private final Histogram lagMillis = new Histogram();
+    private final Set<CloudTrailPoller> pollers = ConcurrentHashMap.newKeySet();
+
+    public void recordLookup(long latencyNanos, int events) {
+        lookupCalls.increment();
+        lookupLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        eventsPerPage.record(events);
+        eventsPolled.add(events);
+        if (events == 0) {
+            emptyPages.increment();
+        }
+    }
+
+    public void recordLookupError(long latencyNanos) {
+        lookupCalls.increment();
+        lookupErrors.increment();
+        lookupLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    /**
+     * @param latencyNanos time spent in the handler
+     */
+    public void recordHandled(Event event, long latencyNanos) {
+        eventsHandled.increment();
+        handlerLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        Instant eventTime = event.eventTime();
+        if (eventTime != null) {
+            lagMillis.record(System.currentTimeMillis() - eventTime.toEpochMilli());
+        }
+    }
+
+    public void recordHandlerError(long latencyNanos) {
+        handlerErrors.increment();
+        handlerLatencyMicros.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    /**
+     * Adds the demand of this poller to the reported one, until {@link #unmonitor(CloudTrailPoller)} is called.
+     * A fan-in has a poller per target, their demands are summed.
+     */
+    public void monitor(CloudTrailPoller poller) {
+        pollers.add(poller);
+    }
+
+    public void unmonitor(CloudTrailPoller poller) {
+        pollers.remove(poller);
+    }
+
+    public MetricsSnapshot snapshot() {
+        long calls = lookupCalls.sum();
+        long successfulCalls = calls - lookupErrors.sum();
+        long empty = emptyPages.sum();
+        long requested = 0;
+        int concurrentCalls = 0;
+        for (CloudTrailPoller monitored : pollers) {
+            requested += monitored.getRequested();
+            concurrentCalls += monitored.getConcurrentCalls();
+        }
+        return MetricsSnapshot.builder()
+                .lookupCalls(calls)
+                .lookupErrors(calls - successfulCalls)
+                .emptyPages(empty)
+                .emptyPageRatio(successfulCalls == 0 ? 0 : (double) empty / successfulCalls)
+                .eventsPolled(eventsPolled.sum())
+                .eventsHandled(eventsHandled.sum())
+                .handlerErrors(handlerErrors.sum())
+                .requested(requested)
+                .concurrentCalls(concurrentCalls)
+                .lookupLatencyMicros(lookupLatencyMicros.snapshot())
+                .eventsPerPage(eventsPerPage.snapshot())
+                .handlerLatencyMicros(handlerLatencyMicros.snapshot())
+                .lagMillis(lagMillis.snapshot())
+                .build();
+    }
+
+    /**
+     * Logs a snapshot every interval.
+     *
+     * @return dispose it to stop the reports
+     */
+    public Disposable report(Duration interval) {
+        return report(interval, snapshot -> log.info("CloudTrail metrics: {}", snapshot));
+    }
+
+    public Disposable report(Duration interval, Consumer<MetricsSnapshot> reporter) {
+        return Flux.interval(interval, interval)
+                .subscribe(tick -> {
+                    try {
+                        reporter.accept(snapshot());
+                    } catch (Exception ex) {
+                        log.error("Failed to report the metrics", ex);
+                    }
+                });
+    }
+}
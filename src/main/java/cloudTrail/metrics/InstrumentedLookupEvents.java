@@ -0,0 +1,38 @@
+package cloudTrail.metrics;
+
+import cloudTrail.client.LookupEvents;
+import models.LookupEventsQuery;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+/**
+ * {@link LookupEvents} recording the latency and the number of events of every call.
+ */
+public class InstrumentedLookupEvents implements LookupEvents {
+
+    private final LookupEvents lookupEvents;
+    private final CloudTrailMetrics metrics;
+
+    public InstrumentedLookupEvents(LookupEvents lookupEvents, CloudTrailMetrics metrics) {
+        this.lookupEvents = lookupEvents;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+        return lookupEvents(LookupEventsQuery.builder()
+                .next(next)
+                .limit(limit)
+                .build());
+    }
+
+    @Override
+    public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return lookupEvents.lookupEvents(query)
+                    .doOnNext(response -> metrics.recordLookup(System.nanoTime() - start, response.events().size()))
+                    .doOnError(throwable -> metrics.recordLookupError(System.nanoTime() - start));
+        });
+    }
+}
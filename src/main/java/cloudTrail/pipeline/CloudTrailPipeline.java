@@ -1,14 +1,30 @@
 package cloudTrail.pipeline;
 
+import cloudTrail.checkpoint.CheckpointStore;
+import cloudTrail.checkpoint.InMemoryCheckpointStore;
 import cloudTrail.client.LookupEvents;
+import cloudTrail.enrichment.EventEnrichment;
+import cloudTrail.metrics.CloudTrailMetrics;
+import cloudTrail.pipeline.aggregation.AggregationSettings;
+import cloudTrail.pipeline.aggregation.InFlightEvents;
+import cloudTrail.pipeline.aggregation.WindowedAggregation;
+import cloudTrail.pipeline.dedup.EventIdDeduplicator;
 import cloudTrail.pipeline.exceptions.EventHandlerRetryableException;
-import cloudTrail.poller.CloudTrailPoller;
+import cloudTrail.pipeline.lanes.OrderedLanes;
+import cloudTrail.pipeline.retry.RetryScheduler;
+import cloudTrail.pipeline.retry.RetrySettings;
+import cloudTrail.poller.PollerSettings;
+import cloudTrail.poller.PollerSource;
 import cloudTrail.service.publishers.handlers.EventHandler;
+import cloudTrail.spool.SpoolingBuffer;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 
+import java.util.List;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /***
@@ -17,40 +33,219 @@ import java.util.function.Supplier;
  * This listener builds the following pipeline
  * Event Received - calls handler - emit emiited
  *
- * Pipeline polls the events from {@link CloudTrailPoller}
+ * Events not matching the filter and events already seen are dropped when a deduplicator is configured.
+ * The remaining events are buffered by the spool, when configured, so a stalled handler does not fill the heap.
+ * The principals and resources of the events are then looked up in batches when an enrichment is configured.
+ * Events are handed to the handler one by one, or in batches when {@link PipelineSettings#getBatchSize()} is above 1.
+ * With {@link ExecutionMode#ORDERED_BY_KEY} the events of a key are handled in order, see {@link OrderedLanes}.
+ * Events failing with an {@link EventHandlerRetryableException} are retried later by a {@link RetryScheduler}
+ * when retries are configured, outside of their lane, and emitted as they are otherwise.
+ * The handled events are counted over time windows when an aggregation is configured, see {@link WindowedAggregation}.
+ * The watermark of the source is then held back to the oldest event not counted yet, see {@link InFlightEvents}.
+ *
+ * Pipeline polls the events from {@link cloudTrail.poller.CloudTrailPoller}, or from any other source of events
  */
 @Slf4j
 public class CloudTrailPipeline implements Supplier<Flux<Event>> {
 
-    private final LookupEvents lookupEvents;
+    private final Supplier<Flux<Event>> source;
     private final EventHandler cloudTrailEventHandler;
+    private final PipelineSettings pipelineSettings;
+
+    /**
+     * Null unless the events are handled in order.
+     */
+    private final OrderedLanes orderedLanes;
 
     public CloudTrailPipeline(LookupEvents ctAsyncClient, EventHandler eventHandler) {
-        this.lookupEvents = ctAsyncClient;
+        this(ctAsyncClient, eventHandler, PollerSettings.defaults());
+    }
+
+    public CloudTrailPipeline(LookupEvents ctAsyncClient, EventHandler eventHandler, PollerSettings pollerSettings) {
+        this(ctAsyncClient, eventHandler, pollerSettings, new InMemoryCheckpointStore());
+    }
+
+    public CloudTrailPipeline(
+            LookupEvents ctAsyncClient,
+            EventHandler eventHandler,
+            PollerSettings pollerSettings,
+            CheckpointStore checkpointStore
+    ) {
+        this(ctAsyncClient, eventHandler, pollerSettings, checkpointStore, PipelineSettings.defaults());
+    }
+
+    public CloudTrailPipeline(
+            LookupEvents ctAsyncClient,
+            EventHandler eventHandler,
+            PollerSettings pollerSettings,
+            CheckpointStore checkpointStore,
+            PipelineSettings pipelineSettings
+    ) {
+        this(
+                new PollerSource(ctAsyncClient, pollerSettings, checkpointStore, pipelineSettings.getMetrics()),
+                eventHandler,
+                pipelineSettings
+        );
+    }
+
+    /**
+     * @param source events to be processed, subscribed once per call to {@link #get()},
+     *               for instance a {@link cloudTrail.fanin.CloudTrailFanIn} merging several accounts and regions
+     */
+    public CloudTrailPipeline(Supplier<Flux<Event>> source, EventHandler eventHandler, PipelineSettings pipelineSettings) {
+        this.source = source;
         this.cloudTrailEventHandler = eventHandler;
+        this.pipelineSettings = pipelineSettings;
+        this.orderedLanes = pipelineSettings.getExecutionMode() == ExecutionMode.ORDERED_BY_KEY
+                ? new OrderedLanes(
+                        pipelineSettings.getPartitionKey(),
+                        pipelineSettings.getLanes(),
+                        pipelineSettings.getMaxInFlight(),
+                        Schedulers.parallel())
+                : null;
     }
 
     @Override
     public Flux<Event> get() {
-        return Flux.<Event>create(eventFluxSink -> {
-            CloudTrailPoller cloudTrailPoller = new CloudTrailPoller(
-                    eventFluxSink::next,
-                    lookupEvents
-            );
-            eventFluxSink.onRequest(cloudTrailPoller::request);
-            eventFluxSink.onCancel(cloudTrailPoller::terminate);
-            cloudTrailPoller.runAsync();
-        })
-                .flatMap(this::safelyCallHandler)
+        return Flux.defer(() -> {
+                    AggregationSettings aggregation = pipelineSettings.getAggregation();
+                    if (aggregation == null || aggregation.getWatermark() == null) {
+                        return aggregate(handleWithRetries(enrich(spool(deduplicate(filter(source.get()))))), aggregation);
+                    }
+                    // the windows of the events between the source and the aggregation are kept open
+                    InFlightEvents inFlight = new InFlightEvents();
+                    Flux<Event> handled = handleWithRetries(enrich(spool(deduplicate(filter(source.get())).doOnNext(inFlight::enter))))
+                            .doOnNext(inFlight::leave);
+                    return aggregate(handled, aggregation.toBuilder()
+                            .watermark(() -> inFlight.holdBack(aggregation.getWatermark().get()))
+                            .build());
+                })
                 .onErrorResume(error -> {
                     log.error("An unexpected error was captured in the pipeline.", error);
                     return Mono.just(Event.builder().build());
                 });
     }
 
-    private Mono<Event> safelyCallHandler(Event event) {
+    private Flux<Event> filter(Flux<Event> events) {
+        Predicate<Event> filter = pipelineSettings.getFilter();
+        return filter == null ? events : events.filter(filter);
+    }
+
+    private Flux<Event> deduplicate(Flux<Event> events) {
+        EventIdDeduplicator deduplicator = pipelineSettings.getDeduplicator();
+        if (deduplicator == null) {
+            return events;
+        }
+        return events.filter(event -> deduplicator.firstSeen(event.eventId()));
+    }
+
+    private Flux<Event> spool(Flux<Event> events) {
+        SpoolingBuffer spool = pipelineSettings.getSpool();
+        return spool == null ? events : spool.apply(events);
+    }
+
+    private Flux<Event> enrich(Flux<Event> events) {
+        EventEnrichment enrichment = pipelineSettings.getEnrichment();
+        return enrichment == null ? events : enrichment.apply(events);
+    }
+
+    private Flux<Event> aggregate(Flux<Event> events, AggregationSettings aggregation) {
+        return aggregation == null ? events : new WindowedAggregation(aggregation).apply(events);
+    }
+
+    /**
+     * @return number of events waiting in every lane, empty unless the events are handled in order
+     */
+    public int[] laneDepths() {
+        return orderedLanes == null ? new int[0] : orderedLanes.depths();
+    }
+
+    /**
+     * Merges the handled events with the retried ones, the retries of a subscription have their own scheduler.
+     */
+    private Flux<Event> handleWithRetries(Flux<Event> events) {
+        RetrySettings retrySettings = pipelineSettings.getRetry();
+        if (retrySettings == null) {
+            return handle(events, null);
+        }
+        return Flux.defer(() -> {
+            RetryScheduler retries = new RetryScheduler(retrySettings);
+            return Flux.merge(
+                            handle(events, retries).doOnComplete(retries::complete),
+                            retries.retried(this::timedCallHandler))
+                    .doFinally(signal -> retries.dispose());
+        });
+    }
+
+    private Flux<Event> handle(Flux<Event> events, RetryScheduler retries) {
+        if (orderedLanes == null) {
+            return handle(events, retries, pipelineSettings.getMaxInFlight(), pipelineSettings.getMaxInFlightBatches());
+        }
+        // a concurrency of 1 handles the events, or the batches, of a lane one after the other
+        return orderedLanes.execute(events, lane -> handle(lane, retries, 1, 1));
+    }
+
+    private Flux<Event> handle(Flux<Event> events, RetryScheduler retries, int concurrency, int batchConcurrency) {
+        if (pipelineSettings.getBatchSize() <= 1) {
+            return events.flatMap(event -> safelyCallHandler(event, retries), concurrency);
+        }
+        // bufferTimeout fails when its linger expires without demand, so it is applied to windows of one batch,
+        // where the consumer always has room for every batch the window can produce
+        int batchSize = pipelineSettings.getBatchSize();
+        return events
+                .window(batchSize)
+                .flatMap(window -> window
+                                .bufferTimeout(batchSize, pipelineSettings.getBatchLinger())
+                                .concatMap(batch -> safelyCallBatchHandler(batch, retries), batchSize),
+                        batchConcurrency);
+    }
+
+    private Mono<Event> safelyCallHandler(Event event, RetryScheduler retries) {
+        return timedCallHandler(event)
+                .onErrorResume(EventHandlerRetryableException.class, throwable -> {
+                    if (retries == null) {
+                        return Mono.just(event);
+                    }
+                    retries.park(event);
+                    return Mono.empty();
+                })
+                .doOnError(throwable -> log.error("Something went wrong", throwable));
+    }
+
+    private Mono<Event> timedCallHandler(Event event) {
+        CloudTrailMetrics metrics = pipelineSettings.getMetrics();
+        if (metrics == null) {
+            return cloudTrailEventHandler.handle(event);
+        }
+        long start = System.nanoTime();
         return cloudTrailEventHandler.handle(event)
-                .onErrorResume(EventHandlerRetryableException.class, throwable -> Mono.just(event))
+                .doOnNext(handled -> metrics.recordHandled(handled, System.nanoTime() - start))
+                .doOnError(throwable -> metrics.recordHandlerError(System.nanoTime() - start));
+    }
+
+    /**
+     * A batch failing with a retryable error has every one of its events retried on its own.
+     */
+    private Flux<Event> safelyCallBatchHandler(List<Event> events, RetryScheduler retries) {
+        return timedCallBatchHandler(events)
+                .onErrorResume(EventHandlerRetryableException.class, throwable -> {
+                    if (retries == null) {
+                        return Flux.fromIterable(events);
+                    }
+                    events.forEach(retries::park);
+                    return Flux.empty();
+                })
                 .doOnError(throwable -> log.error("Something went wrong", throwable));
     }
+
+    private Flux<Event> timedCallBatchHandler(List<Event> events) {
+        CloudTrailMetrics metrics = pipelineSettings.getMetrics();
+        if (metrics == null) {
+            return cloudTrailEventHandler.handleBatch(events);
+        }
+        long start = System.nanoTime();
+        return cloudTrailEventHandler.handleBatch(events)
+                .doOnNext(handled -> metrics.recordHandled(handled, System.nanoTime() - start))
+                .doOnError(throwable -> metrics.recordHandlerError(System.nanoTime() - start));
+    }
 }
@@ -0,0 +1,19 @@
+package cloudTrail.pipeline;
+
+/**
+ * How a {@link CloudTrailPipeline} runs its handler.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Events are handled concurrently, on the thread emitting them, and may complete in any order.
+     */
+    UNORDERED,
+
+    /**
+     * Events are partitioned by {@link PipelineSettings#getPartitionKey()} into lanes handled in parallel,
+     * the events of a lane are handled one after the other, in the order they were polled.
+     * See {@link cloudTrail.pipeline.lanes.OrderedLanes}.
+     */
+    ORDERED_BY_KEY
+}
@@ -0,0 +1,108 @@
+package cloudTrail.pipeline;
+
+import cloudTrail.enrichment.EventEnrichment;
+import cloudTrail.metrics.CloudTrailMetrics;
+import cloudTrail.pipeline.aggregation.AggregationSettings;
+import cloudTrail.pipeline.dedup.EventIdDeduplicator;
+import cloudTrail.pipeline.lanes.PartitionKeys;
+import cloudTrail.pipeline.retry.RetrySettings;
+import cloudTrail.spool.SpoolingBuffer;
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Settings of the stages of a {@link CloudTrailPipeline}.
+ */
+@Value
+@Builder
+public class PipelineSettings {
+
+    @Builder.Default
+    ExecutionMode executionMode = ExecutionMode.UNORDERED;
+
+    /**
+     * Key whose events are handled in order, with {@link ExecutionMode#ORDERED_BY_KEY}.
+     */
+    @Builder.Default
+    Function<Event, String> partitionKey = PartitionKeys.EVENT_SOURCE;
+
+    /**
+     * Number of lanes handled in parallel, with {@link ExecutionMode#ORDERED_BY_KEY}.
+     */
+    @Builder.Default
+    int lanes = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of events being handled at the same time, or queued in the lanes
+     * with {@link ExecutionMode#ORDERED_BY_KEY}.
+     */
+    @Builder.Default
+    int maxInFlight = 256;
+
+    /**
+     * Maximum number of events handed to the handler at once, 1 handles every event on its own.
+     */
+    @Builder.Default
+    int batchSize = 1;
+
+    /**
+     * Maximum time an event waits for its batch to be full.
+     */
+    @Builder.Default
+    Duration batchLinger = Duration.ofMillis(100);
+
+    /**
+     * Maximum number of batches being handled at the same time, batches of a lane are always handled one at a time.
+     */
+    @Builder.Default
+    int maxInFlightBatches = 4;
+
+    /**
+     * Drops the events not matching this condition, before they reach the handler. Disabled when null.
+     * See {@link cloudTrail.filter.FilterPlanner}.
+     */
+    Predicate<Event> filter;
+
+    /**
+     * Drops the events whose id was recently seen, before they reach the handler. Disabled when null.
+     */
+    EventIdDeduplicator deduplicator;
+
+    /**
+     * Records the demand of the poller, the handler latency and the lag of the events. Disabled when null.
+     */
+    CloudTrailMetrics metrics;
+
+    /**
+     * Buffers the events ahead of the handler, spilling them to disk when the handler stalls.
+     * Without it the events pile up on the heap. Disabled when null.
+     */
+    SpoolingBuffer spool;
+
+    /**
+     * Retries the events failing with a {@link cloudTrail.pipeline.exceptions.EventHandlerRetryableException}.
+     * Such events are emitted without being retried when null.
+     */
+    RetrySettings retry;
+
+    /**
+     * Looks up the principals and resources of the events before they reach the handler,
+     * which reads their attributes from {@link EventEnrichment}. Disabled when null.
+     */
+    EventEnrichment enrichment;
+
+    /**
+     * Counts the handled events over event-time windows and publishes the summaries,
+     * the events themselves are only emitted when {@link AggregationSettings#isEmitRawEvents()}. Disabled when null.
+     */
+    AggregationSettings aggregation;
+
+    public static PipelineSettings defaults() {
+        return PipelineSettings.builder().build();
+    }
+}
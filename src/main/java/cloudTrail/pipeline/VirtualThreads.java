@@ -0,0 +1,39 @@
+package cloudTrail.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Schedulers running every task on its own virtual thread, when the JVM has them.
+ *
+ * <p>The sources target Java 11, so the executor of Java 21 is looked up reflectively.
+ * On older JVMs the shared {@link Schedulers#boundedElastic()} is used instead.
+ */
+@Slf4j
+public class VirtualThreads {
+
+    /**
+     * @return a scheduler on virtual threads, to be disposed by the caller, or the bounded elastic scheduler
+     */
+    public static Scheduler newScheduler() {
+        ExecutorService executor = newExecutor();
+        if (executor == null) {
+            log.info("Virtual threads are not available on Java {}, falling back to the bounded elastic scheduler",
+                    System.getProperty("java.version"));
+            return Schedulers.boundedElastic();
+        }
+        return Schedulers.fromExecutorService(executor, "virtual-threads");
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException unavailable) {
+            return null;
+        }
+    }
+}
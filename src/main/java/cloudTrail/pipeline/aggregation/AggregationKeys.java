@@ -0,0 +1,26 @@
+package cloudTrail.pipeline.aggregation;
+
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.function.Function;
+
+/**
+ * Usual keys to count the events by, events without the key are counted under an empty key.
+ */
+public class AggregationKeys {
+
+    public static final Function<Event, String> EVENT_NAME = Event::eventName;
+    public static final Function<Event, String> EVENT_SOURCE = Event::eventSource;
+    public static final Function<Event, String> USERNAME = Event::username;
+
+    /**
+     * API calls, as {@code <event source>/<event name>}.
+     */
+    public static final Function<Event, String> SOURCE_AND_NAME = event -> event.eventSource() + "/" + event.eventName();
+
+    /**
+     * API calls per user, as {@code <username>/<event source>/<event name>}.
+     */
+    public static final Function<Event, String> USER_SOURCE_AND_NAME =
+            event -> event.username() + "/" + event.eventSource() + "/" + event.eventName();
+}
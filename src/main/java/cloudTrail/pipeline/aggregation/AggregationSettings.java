@@ -0,0 +1,73 @@
+package cloudTrail.pipeline.aggregation;
+
+import lombok.Builder;
+import lombok.Value;
+import models.WindowSummary;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Settings of a {@link WindowedAggregation}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class AggregationSettings {
+
+    /**
+     * Receives the summary of every closed window, in the order the windows close.
+     */
+    Consumer<WindowSummary> summaries;
+
+    /**
+     * Length of a window, windows are aligned on the epoch.
+     */
+    @Builder.Default
+    Duration windowSize = Duration.ofMinutes(1);
+
+    /**
+     * Time between the starts of two windows, the windows overlap when it is below {@link #windowSize}.
+     * Windows are tumbling when null.
+     */
+    Duration slide;
+
+    /**
+     * Key the events are counted by, see {@link AggregationKeys}.
+     */
+    @Builder.Default
+    Function<Event, String> key = AggregationKeys.SOURCE_AND_NAME;
+
+    /**
+     * A window is closed once the watermark is this much past its end, older events are still counted until then.
+     * CloudTrail usually delivers an event within 15 minutes of the call it records.
+     */
+    @Builder.Default
+    Duration allowedLateness = Duration.ofMinutes(15);
+
+    /**
+     * Time up to which the source delivered its events, such as {@link cloudTrail.poller.PollerSource#getWatermark()},
+     * null while unknown. When not set, the watermark is the newest event time seen, which only suits sources
+     * delivering the events about in their order, unlike the history walked from the newest event.
+     */
+    Supplier<Instant> watermark;
+
+    /**
+     * How often the {@link #watermark} of the source is checked.
+     */
+    @Builder.Default
+    Duration watermarkInterval = Duration.ofSeconds(10);
+
+    /**
+     * Emits the events downstream alongside the summaries, otherwise only the summaries leave the pipeline.
+     */
+    @Builder.Default
+    boolean emitRawEvents = false;
+
+    Duration effectiveSlide() {
+        return slide == null ? windowSize : slide;
+    }
+}
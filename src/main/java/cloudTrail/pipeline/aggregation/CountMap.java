@@ -0,0 +1,81 @@
+package cloudTrail.pipeline.aggregation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counters by key in open-addressing arrays, without an entry nor a boxed long per key.
+ * Not thread safe.
+ */
+class CountMap {
+    private static final int INITIAL_SLOTS = 16;
+
+    private String[] keys = new String[INITIAL_SLOTS];
+    private long[] counts = new long[INITIAL_SLOTS];
+    private int size;
+    private long total;
+
+    void increment(String key) {
+        int mask = keys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+        while (true) {
+            String existing = keys[slot];
+            if (existing == null) {
+                keys[slot] = key;
+                counts[slot] = 1;
+                size++;
+                total++;
+                if (size * 2 > keys.length) {
+                    grow();
+                }
+                return;
+            }
+            if (existing.equals(key)) {
+                counts[slot]++;
+                total++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    long total() {
+        return total;
+    }
+
+    Map<String, Long> toMap() {
+        Map<String, Long> map = new HashMap<>(size * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                map.put(keys[i], counts[i]);
+            }
+        }
+        return map;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new String[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldKeys[i].hashCode()) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the hash codes of similar keys, which differ in their low bits only.
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
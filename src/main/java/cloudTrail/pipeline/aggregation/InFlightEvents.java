@@ -0,0 +1,54 @@
+package cloudTrail.pipeline.aggregation;
+
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Events which left the source but did not reach the aggregation yet, spooled or being handled.
+ *
+ * <p>The watermark of the source is held back to the oldest of them, so their windows are not closed before they
+ * are counted. Events are matched by id, a handler must emit the events it handled, even as new instances.
+ */
+public class InFlightEvents {
+
+    /**
+     * Event time of every event in flight by id, and number of events in flight by event time.
+     */
+    private final Map<String, Long> times = new HashMap<>();
+    private final TreeMap<Long, Integer> counts = new TreeMap<>();
+
+    public synchronized void enter(Event event) {
+        if (event.eventId() == null || event.eventTime() == null) {
+            return;
+        }
+        long time = event.eventTime().toEpochMilli();
+        if (times.putIfAbsent(event.eventId(), time) == null) {
+            counts.merge(time, 1, Integer::sum);
+        }
+    }
+
+    public synchronized void leave(Event event) {
+        Long time = event.eventId() == null ? null : times.remove(event.eventId());
+        if (time != null) {
+            counts.computeIfPresent(time, (ignored, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * @return the watermark of the source, or the time of the oldest event in flight when it is older
+     */
+    public synchronized Instant holdBack(Instant sourceWatermark) {
+        if (sourceWatermark == null || counts.isEmpty() || counts.firstKey() >= sourceWatermark.toEpochMilli()) {
+            return sourceWatermark;
+        }
+        return Instant.ofEpochMilli(counts.firstKey());
+    }
+
+    public synchronized int size() {
+        return times.size();
+    }
+}
@@ -0,0 +1,145 @@
+package cloudTrail.pipeline.aggregation;
+
+import lombok.extern.slf4j.Slf4j;
+import models.WindowSummary;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Counts the events by key over tumbling or sliding event-time windows, see {@link AggregationSettings}.
+ *
+ * <p>Every window keeps its counters in a {@link CountMap}. A window is closed once the watermark is past its end
+ * plus the allowed lateness, the watermark being the progress of the source when it reports one, see
+ * {@link AggregationSettings#getWatermark()}, and the newest event time seen otherwise. Windows are never closed
+ * by the clock, so a source falling behind does not lose its events.
+ * Its summary is then handed to {@link AggregationSettings#getSummaries()}. An event arriving after one of its
+ * windows was closed is counted in the windows still open and reported as dropped, so the published counts
+ * are never revised. The windows still open are closed when the stream terminates.
+ */
+@Slf4j
+public class WindowedAggregation {
+
+    private final AggregationSettings settings;
+    private final long sizeMillis;
+    private final long slideMillis;
+
+    public WindowedAggregation(AggregationSettings settings) {
+        Objects.requireNonNull(settings.getSummaries(), "A consumer of the summaries is required");
+        this.settings = settings;
+        this.sizeMillis = settings.getWindowSize().toMillis();
+        this.slideMillis = settings.effectiveSlide().toMillis();
+        if (slideMillis <= 0 || slideMillis > sizeMillis) {
+            throw new IllegalArgumentException("The slide must be positive and at most the window size");
+        }
+    }
+
+    /**
+     * Every subscription has its own windows.
+     */
+    public Flux<Event> apply(Flux<Event> events) {
+        return Flux.defer(() -> {
+            Windows windows = new Windows();
+            Supplier<Instant> sourceWatermark = settings.getWatermark();
+            Disposable watermarkChecks = sourceWatermark == null
+                    ? Disposables.disposed()
+                    : Flux.interval(settings.getWatermarkInterval()).subscribe(tick -> windows.advance(sourceWatermark.get()));
+            Flux<Event> counted = events
+                    .doOnNext(windows::add)
+                    .doFinally(signal -> {
+                        watermarkChecks.dispose();
+                        windows.closeAll();
+                    });
+            return settings.isEmitRawEvents() ? counted : counted.ignoreElements().flux();
+        });
+    }
+
+    private class Windows {
+        private final long latenessMillis = settings.getAllowedLateness().toMillis();
+        private final boolean eventTimeWatermark = settings.getWatermark() == null;
+
+        /**
+         * Open windows by start, the windows ending at or before {@link #closedEnd} are closed.
+         */
+        private final TreeMap<Long, CountMap> open = new TreeMap<>();
+        private long closedEnd = Long.MIN_VALUE;
+        private long watermark = Long.MIN_VALUE;
+        private long dropped;
+
+        synchronized void add(Event event) {
+            if (event.eventTime() == null) {
+                dropped++;
+                return;
+            }
+
+            long time = event.eventTime().toEpochMilli();
+            String key = settings.getKey().apply(event);
+            if (key == null) {
+                key = "";
+            }
+            for (long start = Math.floorDiv(time, slideMillis) * slideMillis; start > time - sizeMillis; start -= slideMillis) {
+                if (start + sizeMillis <= closedEnd) {
+                    // the older windows are closed as well
+                    dropped++;
+                    break;
+                }
+                open.computeIfAbsent(start, ignored -> new CountMap()).increment(key);
+            }
+
+            if (eventTimeWatermark) {
+                advance(time);
+            }
+        }
+
+        synchronized void advance(Instant sourceWatermark) {
+            if (sourceWatermark != null) {
+                advance(sourceWatermark.toEpochMilli());
+            }
+        }
+
+        private void advance(long time) {
+            if (time > watermark) {
+                watermark = time;
+                close(watermark - latenessMillis);
+            }
+        }
+
+        synchronized void closeAll() {
+            close(Long.MAX_VALUE);
+        }
+
+        /**
+         * Closes the windows ending at or before the given time, in order.
+         */
+        private void close(long end) {
+            while (!open.isEmpty() && open.firstKey() + sizeMillis <= end) {
+                Map.Entry<Long, CountMap> window = open.pollFirstEntry();
+                emit(window.getKey(), window.getValue());
+            }
+            closedEnd = Math.max(closedEnd, end);
+        }
+
+        private void emit(long start, CountMap counts) {
+            WindowSummary summary = WindowSummary.builder()
+                    .windowStart(Instant.ofEpochMilli(start))
+                    .windowEnd(Instant.ofEpochMilli(start + sizeMillis))
+                    .counts(counts.toMap())
+                    .total(counts.total())
+                    .droppedEvents(dropped)
+                    .build();
+            dropped = 0;
+            try {
+                settings.getSummaries().accept(summary);
+            } catch (Throwable ex) {
+                log.error("Failed to publish the summary of the window starting at {}", summary.getWindowStart(), ex);
+            }
+        }
+    }
+}
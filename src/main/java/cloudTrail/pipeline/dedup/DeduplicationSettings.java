@@ -0,0 +1,36 @@
+package cloudTrail.pipeline.dedup;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of an {@link EventIdDeduplicator}.
+ */
+@Value
+@Builder
+public class DeduplicationSettings {
+
+    /**
+     * Maximum number of remembered ids, each one costs about 32 bytes.
+     */
+    @Builder.Default
+    int maxEntries = 2_000_000;
+
+    /**
+     * Minimum time an id is remembered, as long as {@link #maxEntries} is not reached.
+     */
+    @Builder.Default
+    Duration ttl = Duration.ofHours(1);
+
+    /**
+     * Keeps the table out of the heap, so it is not scanned by the garbage collector.
+     */
+    @Builder.Default
+    boolean offHeap = false;
+
+    public static DeduplicationSettings defaults() {
+        return DeduplicationSettings.builder().build();
+    }
+}
@@ -0,0 +1,272 @@
+package cloudTrail.pipeline.dedup;
+
+import models.DeduplicationStats;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Remembers the ids of recently seen events to drop the ones delivered more than once.
+ *
+ * <p>Ids are stored as 128 bits hashes in open-addressing tables of longs, without any object per id.
+ * CloudTrail event ids are UUIDs, which are used as their own hash, any other id is hashed with MurmurHash3.
+ *
+ * <p>The ids are split into two generations, new ids go to the current one and lookups check both.
+ * When the current generation is full or older than the ttl, the previous generation is dropped
+ * and the current one takes its place, so memory stays bounded without deleting single entries.
+ */
+public class EventIdDeduplicator {
+    private static final double LOAD_FACTOR = 0.75;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final int generationCapacity;
+    private final int mask;
+    private final long ttlNanos;
+    private LongBuffer current;
+    private LongBuffer previous;
+    private int currentSize;
+    private int previousSize;
+    private long generationStartNanos;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Hash of the id being looked up, kept in fields to not allocate per lookup.
+     */
+    private long hashHigh;
+    private long hashLow;
+
+    public EventIdDeduplicator(DeduplicationSettings settings) {
+        this.generationCapacity = Math.max(1, settings.getMaxEntries() / 2);
+        int slots = Integer.highestOneBit((int) Math.ceil(generationCapacity / LOAD_FACTOR) - 1) << 1;
+        this.mask = slots - 1;
+        this.ttlNanos = settings.getTtl().toNanos();
+        this.current = allocate(slots, settings.isOffHeap());
+        this.previous = allocate(slots, settings.isOffHeap());
+        this.generationStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the id of an event.
+     *
+     * @param eventId id of the event, events without id are never considered as duplicates
+     * @return true if the id was not seen recently
+     */
+    public synchronized boolean firstSeen(String eventId) {
+        if (eventId == null) {
+            return true;
+        }
+
+        rotateIfNeeded();
+        hash(eventId);
+        if (contains(previous)) {
+            hits++;
+            // keeps the ids which are still being delivered twice
+            insert(current);
+            return false;
+        }
+        if (!insert(current)) {
+            hits++;
+            return false;
+        }
+        misses++;
+        return true;
+    }
+
+    public synchronized DeduplicationStats snapshot() {
+        return DeduplicationStats.builder()
+                .hits(hits)
+                .misses(misses)
+                .evictions(evictions)
+                .size(currentSize + previousSize)
+                .build();
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.nanoTime();
+        if (currentSize < generationCapacity && now - generationStartNanos < ttlNanos) {
+            return;
+        }
+
+        evictions += previousSize;
+        LongBuffer dropped = previous;
+        previous = current;
+        previousSize = currentSize;
+        current = dropped;
+        currentSize = 0;
+        for (int i = 0; i < current.capacity(); i++) {
+            current.put(i, 0L);
+        }
+        generationStartNanos = now;
+    }
+
+    private boolean contains(LongBuffer table) {
+        int slot = (int) hashLow & mask;
+        while (true) {
+            long high = table.get(2 * slot);
+            long low = table.get(2 * slot + 1);
+            if (high == 0 && low == 0) {
+                return false;
+            }
+            if (high == hashHigh && low == hashLow) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return false if the hash was already in the table
+     */
+    private boolean insert(LongBuffer table) {
+        int slot = (int) hashLow & mask;
+        while (true) {
+            long high = table.get(2 * slot);
+            long low = table.get(2 * slot + 1);
+            if (high == 0 && low == 0) {
+                table.put(2 * slot, hashHigh);
+                table.put(2 * slot + 1, hashLow);
+                currentSize++;
+                return true;
+            }
+            if (high == hashHigh && low == hashLow) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void hash(String eventId) {
+        if (!parseUuid(eventId)) {
+            murmur3(eventId);
+        }
+        if (hashHigh == 0 && hashLow == 0) {
+            // the empty slot marker
+            hashLow = 1;
+        }
+        // UUIDs have their random bits on both halves, the low half is mixed as it selects the slot
+        hashLow = fmix(hashLow);
+    }
+
+    /**
+     * Reads a UUID of the form {@code xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx} into {@link #hashHigh} and {@link #hashLow}.
+     *
+     * @return false if the id is not a UUID
+     */
+    private boolean parseUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        long high = 0;
+        long low = 0;
+        int digits = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+                continue;
+            }
+            int value = Character.digit(c, 16);
+            if (value < 0) {
+                return false;
+            }
+            if (digits < 16) {
+                high = (high << 4) | value;
+            } else {
+                low = (low << 4) | value;
+            }
+            digits++;
+        }
+        hashHigh = high;
+        hashLow = low;
+        return true;
+    }
+
+    /**
+     * MurmurHash3 x64 128 over the UTF-16 code units of the id.
+     */
+    private void murmur3(String id) {
+        long h1 = 0;
+        long h2 = 0;
+        int length = id.length();
+        int blocks = length / 8;
+        for (int block = 0; block < blocks; block++) {
+            int offset = block * 8;
+            long k1 = chars(id, offset, 4);
+            long k2 = chars(id, offset + 4, 4);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks * 8;
+        int remaining = length - tail;
+        if (remaining > 4) {
+            h2 ^= mixK2(chars(id, tail + 4, remaining - 4));
+        }
+        if (remaining > 0) {
+            h1 ^= mixK1(chars(id, tail, Math.min(4, remaining)));
+        }
+
+        h1 ^= length * 2L;
+        h2 ^= length * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        hashHigh = h1;
+        hashLow = h2;
+    }
+
+    private static long chars(String id, int offset, int count) {
+        long value = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            value = (value << 16) | id.charAt(offset + i);
+        }
+        return value;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static LongBuffer allocate(int slots, boolean offHeap) {
+        if (offHeap) {
+            return ByteBuffer.allocateDirect(slots * 2 * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+        return LongBuffer.allocate(slots * 2);
+    }
+}
@@ -0,0 +1,75 @@
+package cloudTrail.pipeline.lanes;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+/**
+ * Hash partitions the events by key into a fixed number of lanes.
+ *
+ * <p>Every lane is handled on a worker of the scheduler, one event after the other, so the events of a key
+ * keep their order while the lanes run in parallel. At most {@code maxInFlight} events are requested from upstream
+ * ahead of the lanes, and each lane queues at most {@code maxInFlight / lanes} events.
+ *
+ * <p>The number of events queued in each lane is available from {@link #depths()}, a hot key shows up as a deep lane.
+ */
+public class OrderedLanes {
+
+    private final Function<Event, String> partitionKey;
+    private final int lanes;
+    private final int maxInFlight;
+    private final int laneCapacity;
+    private final Scheduler scheduler;
+    private final AtomicIntegerArray depths;
+
+    public OrderedLanes(Function<Event, String> partitionKey, int lanes, int maxInFlight, Scheduler scheduler) {
+        this.partitionKey = partitionKey;
+        this.lanes = Math.max(1, lanes);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.laneCapacity = Math.max(1, this.maxInFlight / this.lanes);
+        this.scheduler = scheduler;
+        this.depths = new AtomicIntegerArray(this.lanes);
+    }
+
+    /**
+     * @param laneHandler handles the events of one lane, it must keep their order
+     */
+    public Flux<Event> execute(Flux<Event> events, Function<Flux<Event>, Flux<Event>> laneHandler) {
+        return events
+                .groupBy(this::enqueue, maxInFlight)
+                // every lane has to be subscribed, or groupBy stalls once a lane without subscriber is full
+                .flatMap(lane -> laneHandler.apply(lane
+                                .publishOn(scheduler, laneCapacity)
+                                .doOnNext(event -> depths.decrementAndGet(lane.key()))),
+                        lanes);
+    }
+
+    /**
+     * @return number of events waiting in every lane, indexed by lane
+     */
+    public int[] depths() {
+        int[] snapshot = new int[lanes];
+        for (int i = 0; i < lanes; i++) {
+            snapshot[i] = depths.get(i);
+        }
+        return snapshot;
+    }
+
+    public int lane(Event event) {
+        String key = partitionKey.apply(event);
+        if (key == null) {
+            return 0;
+        }
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes);
+    }
+
+    private int enqueue(Event event) {
+        int lane = lane(event);
+        depths.incrementAndGet(lane);
+        return lane;
+    }
+}
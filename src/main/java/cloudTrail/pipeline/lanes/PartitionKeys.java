@@ -0,0 +1,24 @@
+package cloudTrail.pipeline.lanes;
+
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Usual keys to partition the events by.
+ */
+public class PartitionKeys {
+
+    public static final Function<Event, String> EVENT_SOURCE = Event::eventSource;
+    public static final Function<Event, String> USERNAME = Event::username;
+
+    /**
+     * Name of the first resource of the event, usually its ARN.
+     */
+    public static final Function<Event, String> RESOURCE_NAME = event -> {
+        List<Resource> resources = event.resources();
+        return resources.isEmpty() ? null : resources.get(0).resourceName();
+    };
+}
@@ -0,0 +1,105 @@
+package cloudTrail.pipeline.retry;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel, parking items until their delay expires.
+ *
+ * <p>The wheel is an array of buckets, each one covering a tick. Scheduling an item is an append to the bucket
+ * of its deadline, and every tick only looks at a single bucket, so parking many items costs no timer each.
+ * Deadlines further than a revolution share the bucket with nearer ones and are kept until their own tick.
+ * Deadlines are rounded up to the next tick.
+ */
+@Slf4j
+public class HashedTimerWheel<T> implements Disposable {
+
+    private final long tickNanos;
+    private final ArrayDeque<Timeout<T>>[] buckets;
+    private final Consumer<T> onExpiry;
+    private final Disposable ticker;
+    private final List<T> expired = new ArrayList<>();
+    private long tick;
+    private int size;
+
+    /**
+     * @param onExpiry called from the scheduler, with every item whose delay expired
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(Duration tickDuration, int wheelSize, Scheduler scheduler, Consumer<T> onExpiry) {
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new ArrayDeque[Math.max(1, wheelSize)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.onExpiry = onExpiry;
+        this.ticker = scheduler.schedulePeriodically(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void schedule(T item, Duration delay) {
+        long ticks = Math.max(1, (delay.toNanos() + tickNanos - 1) / tickNanos);
+        long deadline = tick + ticks;
+        buckets[(int) (deadline % buckets.length)].add(new Timeout<>(item, deadline));
+        size++;
+    }
+
+    /**
+     * @return number of items waiting for their delay to expire
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public void dispose() {
+        ticker.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return ticker.isDisposed();
+    }
+
+    private void tick() {
+        synchronized (this) {
+            tick++;
+            Iterator<Timeout<T>> timeouts = buckets[(int) (tick % buckets.length)].iterator();
+            while (timeouts.hasNext()) {
+                Timeout<T> timeout = timeouts.next();
+                if (timeout.deadline <= tick) {
+                    timeouts.remove();
+                    expired.add(timeout.item);
+                    size--;
+                }
+            }
+        }
+        // the expired items are only touched by the ticking thread
+        for (T item : expired) {
+            try {
+                onExpiry.accept(item);
+            } catch (Throwable ex) {
+                log.error("Failed to handle an expired timeout", ex);
+            }
+        }
+        expired.clear();
+    }
+
+    private static class Timeout<T> {
+        private final T item;
+        private final long deadline;
+
+        Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
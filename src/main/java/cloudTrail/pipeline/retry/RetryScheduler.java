@@ -0,0 +1,155 @@
+package cloudTrail.pipeline.retry;
+
+import cloudTrail.pipeline.exceptions.EventHandlerRetryableException;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Retries the events failing with an {@link EventHandlerRetryableException}, away from the main path of the pipeline.
+ *
+ * <p>A failed event is parked in a {@link HashedTimerWheel} for an exponential backoff with jitter,
+ * so it holds no slot of the pipeline while waiting. Once its backoff expires it is re-injected into
+ * {@link #retried(Function)}, which handles at most {@link RetrySettings#getMaxConcurrentRetries()} events at once.
+ * Events out of attempts, or failing with another error, go to the dead-letter publisher.
+ *
+ * <p>An instance serves a single subscription of the pipeline.
+ */
+@Slf4j
+public class RetryScheduler implements Disposable {
+
+    private final RetrySettings settings;
+    private final HashedTimerWheel<RetryAttempt> wheel;
+    private final Sinks.Many<RetryAttempt> expired = Sinks.many().unicast().onBackpressureBuffer();
+
+    /**
+     * Events parked or being retried.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean mainCompleted;
+
+    public RetryScheduler(RetrySettings settings) {
+        this.settings = settings;
+        this.wheel = new HashedTimerWheel<>(settings.getTickDuration(), settings.getWheelSize(), Schedulers.single(),
+                attempt -> expired.emitNext(attempt, RetryScheduler::retryNonSerialized));
+    }
+
+    /**
+     * Parks an event which failed its first attempt.
+     */
+    public void park(Event event) {
+        pending.incrementAndGet();
+        park(new RetryAttempt(event, 1));
+    }
+
+    /**
+     * @param handler calls the handler for a retried event
+     * @return the events handled by a retry
+     */
+    public Flux<Event> retried(Function<Event, Mono<Event>> handler) {
+        return expired.asFlux()
+                .flatMap(attempt -> handler.apply(attempt.event)
+                                .onErrorResume(EventHandlerRetryableException.class, throwable -> {
+                                    pending.incrementAndGet();
+                                    park(new RetryAttempt(attempt.event, attempt.attempts + 1));
+                                    return Mono.empty();
+                                })
+                                .onErrorResume(throwable -> {
+                                    log.error("Retry of event {} failed", attempt.event.eventId(), throwable);
+                                    deadLetter(attempt.event);
+                                    return Mono.empty();
+                                })
+                                .doFinally(signal -> done()),
+                        settings.getMaxConcurrentRetries());
+    }
+
+    /**
+     * Signals that no event will be parked anymore, {@link #retried(Function)} completes once the parked ones are done.
+     */
+    public void complete() {
+        mainCompleted = true;
+        if (pending.get() == 0) {
+            expired.emitComplete(RetryScheduler::retryNonSerialized);
+        }
+    }
+
+    /**
+     * @return number of events waiting for their backoff to expire
+     */
+    public int parked() {
+        return wheel.size();
+    }
+
+    @Override
+    public void dispose() {
+        wheel.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return wheel.isDisposed();
+    }
+
+    private void park(RetryAttempt attempt) {
+        if (attempt.attempts >= settings.getMaxAttempts()) {
+            log.warn("Event {} failed {} times, it is dead-lettered", attempt.event.eventId(), attempt.attempts);
+            deadLetter(attempt.event);
+            done();
+            return;
+        }
+        wheel.schedule(attempt, backoff(attempt.attempts));
+    }
+
+    /**
+     * @param attempts number of failed attempts
+     */
+    Duration backoff(int attempts) {
+        double backoff = settings.getInitialBackoff().toNanos() * Math.pow(settings.getMultiplier(), attempts - 1);
+        double capped = Math.min(backoff, settings.getMaxBackoff().toNanos());
+        double jittered = capped * (1 - settings.getJitter() * ThreadLocalRandom.current().nextDouble());
+        return Duration.ofNanos((long) jittered);
+    }
+
+    private void deadLetter(Event event) {
+        if (settings.getDeadLetterPublisher() == null) {
+            log.error("Dropping event {}, no dead-letter publisher is configured", event.eventId());
+            return;
+        }
+        settings.getDeadLetterPublisher().processAndPublishEvent(event)
+                .subscribe(published -> {
+                }, throwable -> log.error("Failed to dead-letter event {}", event.eventId(), throwable));
+    }
+
+    private void done() {
+        if (pending.decrementAndGet() == 0 && mainCompleted) {
+            expired.emitComplete(RetryScheduler::retryNonSerialized);
+        }
+    }
+
+    /**
+     * Emissions come from the wheel and from completing retries, concurrent ones are retried.
+     */
+    private static boolean retryNonSerialized(SignalType signalType, Sinks.EmitResult result) {
+        return result == Sinks.EmitResult.FAIL_NON_SERIALIZED;
+    }
+
+    private static class RetryAttempt {
+        private final Event event;
+        private final int attempts;
+
+        RetryAttempt(Event event, int attempts) {
+            this.event = event;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cloudTrail.pipeline.retry;
+
+import cloudTrail.service.publishers.publisher.EventPublisher;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link RetryScheduler}.
+ */
+@Value
+@Builder
+public class RetrySettings {
+
+    /**
+     * Number of calls to the handler, including the first one, before an event is dead-lettered.
+     */
+    @Builder.Default
+    int maxAttempts = 5;
+
+    @Builder.Default
+    Duration initialBackoff = Duration.ofSeconds(1);
+
+    @Builder.Default
+    Duration maxBackoff = Duration.ofMinutes(5);
+
+    @Builder.Default
+    double multiplier = 2.0;
+
+    /**
+     * Share of the backoff which is randomized, 0.5 waits between half and the whole backoff.
+     */
+    @Builder.Default
+    double jitter = 0.5;
+
+    /**
+     * Maximum number of retries being handled at the same time.
+     */
+    @Builder.Default
+    int maxConcurrentRetries = 16;
+
+    /**
+     * Resolution of the timer wheel.
+     */
+    @Builder.Default
+    Duration tickDuration = Duration.ofMillis(100);
+
+    @Builder.Default
+    int wheelSize = 512;
+
+    /**
+     * Receives the events out of attempts, they are logged and dropped when null.
+     */
+    EventPublisher deadLetterPublisher;
+
+    public static RetrySettings defaults() {
+        return RetrySettings.builder().build();
+    }
+}
@@ -1,38 +1,39 @@
 package cloudTrail.poller;
 
+import cloudTrail.checkpoint.CheckpointStore;
+import cloudTrail.checkpoint.InMemoryCheckpointStore;
 import cloudTrail.client.LookupEvents;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
-import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
-import static java.lang.Math.toIntExact;
-
 /**
  * Create a polling operation to receive messages from CloudTrailer.
  *
  * This can be used for SQS events as also (have written this keeping SQS keeping in mind, which would poll events from SQS
  * (cloud trail queue)
- * <p>This class will create a long running thread to collect messages from CloudTrail.
- * The number of messages processed by this thread is limited to number of messages requested.
+ * <p>This class does not own any thread. A call to CloudTrail is only issued when messages are requested,
+ * either from {@link #request(Long)} or when a previous call completes, and the next page is polled from the thread
+ * completing the previous call. An idle poller costs nothing but its memory, so many of them can run in a single JVM.
+ * The number of messages processed is limited to number of messages requested.
  */
 @Slf4j
 public class CloudTrailPoller {
     private static final int MAX_MESSAGE_PER_REQUEST = 50;
     private final OnMessageReceived onMessageReceived;
-    private final Integer maxConcurrentReceiveOperations;
-    private final long maxSleepTimeMs;
+    private final int maxConcurrentReceiveOperations;
+    private final Duration idleBackoff;
 
     /**
      * Special counter for the number of the requested messages.
@@ -42,35 +43,79 @@ public class CloudTrailPoller {
      * Limited automatically by subscribers (reacting on their demand).
      * Can be throttled by flatMap's concurrency limit {@link reactor.core.publisher.Flux#flatMap(Function,int)}.
      */
-    
     private final AtomicLong requested = new AtomicLong();
     private final AtomicBoolean continueProcessing = new AtomicBoolean();
-    private final Scheduler pollingScheduler = Schedulers.newSingle("polling-handler");
 
     /**
      * Limits the number of concurrent calls to AWS,
      * which are needed for fast processing pipelines,
      * where the producer itself might become a bottle-neck.
      *
-     * ----- PLEASE NOTE -----
-     * We are hardcoding to 1 for cloudTrailer, it could get complicate because of the NEXT, we would need to persist the
-     * NEXT token (for pagination) value in DB or define as a critical section. Also there are chances of hitting rate-limiting
-     * and getting throttled
+     * The NEXT token (for pagination) can only be walked serially, so concurrency is achieved by splitting
+     * the polled time range into {@link PollingShard}s, each one with its own token and at most one call in flight.
      */
     private final AtomicInteger concurrentCalls = new AtomicInteger();
-    private final Object lock = new Object();
+
+    /**
+     * Work in progress of {@link #drain()}, only the thread moving it from 0 issues calls,
+     * the others only signal that there might be more work to do.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
     private final LookupEvents ctAsyncClient;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private static String next = "NO_NEXT";
+    private final List<PollingShard> shards;
+    private final CheckpointStore checkpointStore;
+    private final Runnable onCompleted;
+    private final AtomicBoolean completed = new AtomicBoolean();
 
     public CloudTrailPoller(
             OnMessageReceived onMessageReceived,
             LookupEvents lookupEvents
     ) {
+        this(onMessageReceived, lookupEvents, PollerSettings.defaults());
+    }
+
+    public CloudTrailPoller(
+            OnMessageReceived onMessageReceived,
+            LookupEvents lookupEvents,
+            PollerSettings settings
+    ) {
+        this(onMessageReceived, lookupEvents, settings, new InMemoryCheckpointStore());
+    }
+
+    /**
+     * @param checkpointStore every shard resumes from its last checkpoint in this store
+     */
+    public CloudTrailPoller(
+            OnMessageReceived onMessageReceived,
+            LookupEvents lookupEvents,
+            PollerSettings settings,
+            CheckpointStore checkpointStore
+    ) {
+        this(onMessageReceived, lookupEvents, settings, checkpointStore, () -> {
+        });
+    }
+
+    /**
+     * @param onCompleted called once every shard is exhausted and its pages were delivered,
+     *                    never called when polling without a time range
+     */
+    public CloudTrailPoller(
+            OnMessageReceived onMessageReceived,
+            LookupEvents lookupEvents,
+            PollerSettings settings,
+            CheckpointStore checkpointStore,
+            Runnable onCompleted
+    ) {
+        this.onCompleted = onCompleted;
         this.ctAsyncClient = lookupEvents;
         this.onMessageReceived = onMessageReceived;
-        this.maxConcurrentReceiveOperations = 1;
-        this.maxSleepTimeMs = 3000;
+        this.checkpointStore = checkpointStore;
+        this.shards = PollingShard.split(settings);
+        for (PollingShard shard : shards) {
+            checkpointStore.load(shard.getStreamId()).ifPresent(shard::restore);
+        }
+        this.maxConcurrentReceiveOperations = shards.size();
+        this.idleBackoff = settings.getIdleBackoff();
     }
 
     /**
@@ -79,16 +124,19 @@ public class CloudTrailPoller {
      * @param numOfMessages number of messages requested.
      */
     public void request(Long numOfMessages) {
-        requested.addAndGet(numOfMessages);
-        unlock();
+        requested.getAndUpdate(actual -> {
+            long sum = actual + numOfMessages;
+            return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+        drain();
     }
 
     /**
-     * Start this polling on a new thread.
+     * Start this polling, calls are issued as soon as messages are requested.
      */
     public void runAsync() {
         if (continueProcessing.compareAndSet(false, true)) {
-            executor.submit(this::run);
+            drain();
         }
     }
 
@@ -99,63 +147,184 @@ public class CloudTrailPoller {
      */
     public void terminate() {
         continueProcessing.set(false);
-        unlock();
-        executor.shutdown();
-        try {
-            executor.awaitTermination(10, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            log.error("Failed to terminate CloudTrail poller");
+    }
+
+    /**
+     * @return messages requested downstream and not yet asked to CloudTrail.
+     */
+    public long getRequested() {
+        return requested.get();
+    }
+
+    /**
+     * @return calls to CloudTrail in flight, including the shards pausing after an empty page.
+     */
+    public int getConcurrentCalls() {
+        return concurrentCalls.get();
+    }
+
+    /**
+     * @return the oldest time up to which every shard delivered the events held by CloudTrail, with an event time
+     * after the newest event seen minus {@link PollerSettings#getTailOverlap()}, null until every
+     * unbounded shard polled its history in tail mode, see {@link PollerSettings#isTail()}
+     */
+    public Instant getWatermark() {
+        Instant watermark = null;
+        for (PollingShard shard : shards) {
+            if (shard.isExhausted()) {
+                continue;
+            }
+            Instant deliveredUntil = shard.getDeliveredUntil();
+            if (deliveredUntil == null) {
+                return null;
+            }
+            if (watermark == null || deliveredUntil.isBefore(watermark)) {
+                watermark = deliveredUntil;
+            }
         }
+        return watermark;
     }
 
-    private void run() {
-        while (continueProcessing.get()) {
+    /**
+     * Issues a call for every idle shard, as long as there are messages requested,
+     * and delivers the buffered pages one at a time so calls are issued as soon as a page was delivered.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
             try {
-                final AtomicInteger toBeRequested = new AtomicInteger(numberOfMessagesToBeRequested());
-                if (toBeRequested.get() <= 0) {
-                    lock();
-                    continue;
+                while (continueProcessing.get()) {
+                    boolean polled = pollIdleShards();
+                    boolean delivered = deliverPage();
+                    if (!polled && !delivered) {
+                        break;
+                    }
                 }
+                completeIfDrained();
+            } catch (Throwable ex) {
+                log.error("Failed to lookup the messages", ex);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
 
-                concurrentCalls.incrementAndGet();
+    private void completeIfDrained() {
+        if (!continueProcessing.get()) {
+            return;
+        }
+        for (PollingShard shard : shards) {
+            if (!shard.isDrained()) {
+                return;
+            }
+        }
+        if (completed.compareAndSet(false, true)) {
+            onCompleted.run();
+        }
+    }
+
+    /**
+     * @return true if at least one call was issued.
+     */
+    private boolean pollIdleShards() {
+        boolean polled = false;
+        while (true) {
+            final PollingShard shard = acquireIdleShard();
+            if (shard == null) {
+                return polled;
+            }
+
+            final int toBeRequested = numberOfMessagesToBeRequested();
+            if (toBeRequested <= 0) {
+                shard.release();
+                return polled;
+            }
+
+            poll(shard, toBeRequested);
+            polled = true;
+        }
+    }
+
+    /**
+     * @return true if a page was delivered.
+     */
+    private boolean deliverPage() {
+        for (PollingShard shard : shards) {
+            PollingShard.Page page = shard.pollPage();
+            if (page != null) {
+                for (Event event : page.getEvents()) {
+                    internalOnMessageReceive(event);
+                }
+                // the progress is only recorded once the events of the page were handed downstream
+                checkpointStore.commit(page.getCheckpoint());
+                shard.delivered(page);
+                return true;
+            }
+        }
+        return false;
+    }
 
-                Mono.just(toBeRequested.get())
-                        .flatMap(s -> {
-                            String nextToken = fetchNext() == "NO_NEXT" ? null : fetchNext();
-                            return ctAsyncClient.lookupEvents(nextToken, s);
-                        })
-                        .onErrorResume(throwable -> {
+    private void poll(PollingShard shard, int toBeRequested) {
+        concurrentCalls.incrementAndGet();
+        Mono.defer(() -> ctAsyncClient.lookupEvents(shard.query(toBeRequested)))
+                .map(lookupEventsResponse -> Optional.of(new PollingShard.Page(
+                        shard.advance(lookupEventsResponse), shard.checkpoint(), shard.getPolledUntil())))
+                // a call completing without a response is handled like a failed call
+                .defaultIfEmpty(Optional.empty())
+                .subscribe(
+                        page -> onPage(shard, toBeRequested, page.orElse(null)),
+                        throwable -> {
                             log.error("Error propagated from the cloud trail async client", throwable);
-                            return Mono.just(LookupEventsResponse.builder().build());
-                        })
-                        .defaultIfEmpty(LookupEventsResponse.builder().build())
-                        .subscribeOn(pollingScheduler)
-                        .subscribe(lookupEventsResponse -> {
-                            persistNext(lookupEventsResponse.nextToken());
-                            int offset = toBeRequested.get() - lookupEventsResponse.events().size();
-                            requested.getAndAdd(offset);
-                            concurrentCalls.decrementAndGet();
-                            unlock();
-                            if (lookupEventsResponse.hasEvents()) {
-                                for (Event event : lookupEventsResponse.events()) {
-                                    internalOnMessageReceive(event);
-                                }
-                            }
+                            onPage(shard, toBeRequested, null);
                         });
-            } catch (Throwable ex) {
-                log.error("Failed to lookup the messages", ex);
-            }
+    }
+
+    /**
+     * Buffers a page and frees its shard. The shard is paused when it asks for it, between two tail polls,
+     * or for {@link #idleBackoff} after an empty page, so a quiet account or a failing client is not called in a loop.
+     * An empty page is buffered as well, so its checkpoint is committed after the pages received before it.
+     *
+     * @param page null if the call failed
+     */
+    private void onPage(PollingShard shard, int toBeRequested, PollingShard.Page page) {
+        List<Event> events = page == null ? Collections.<Event>emptyList() : page.getEvents();
+        requested.getAndAdd(toBeRequested - events.size());
+        Duration pause = shard.takePause();
+        if (pause == null && events.isEmpty()) {
+            pause = idleBackoff;
+        }
+        if (page != null) {
+            shard.offer(page);
+        }
+        if (pause == null) {
+            release(shard);
+        } else {
+            Mono.delay(pause).subscribe(ignored -> release(shard));
+            drain();
         }
     }
 
-    // TODO: Move to a different class and define as a critical section
-    private String fetchNext() {
-        return next;
+    private void release(PollingShard shard) {
+        shard.release();
+        concurrentCalls.decrementAndGet();
+        drain();
     }
 
-    // TODO: Move to a different class and define as a critical section
-    private void persistNext(String next) {
-        CloudTrailPoller.next = next;
+    /**
+     * Finds a shard which has no call in flight and marks it as busy.
+     *
+     * @return the acquired shard or null if every shard is busy or exhausted.
+     */
+    private PollingShard acquireIdleShard() {
+        for (PollingShard shard : shards) {
+            if (shard.tryAcquire()) {
+                return shard;
+            }
+        }
+        return null;
     }
 
     /**
@@ -169,8 +338,8 @@ public class CloudTrailPoller {
             return 0;
         }
 
-        final int maxConcurrent = toIntExact(requested.getAndUpdate(actual -> actual - Math.min(actual, MAX_MESSAGE_PER_REQUEST)));
-        return Math.min(maxConcurrent, MAX_MESSAGE_PER_REQUEST);
+        final long maxConcurrent = requested.getAndUpdate(actual -> actual - Math.min(actual, MAX_MESSAGE_PER_REQUEST));
+        return (int) Math.min(maxConcurrent, MAX_MESSAGE_PER_REQUEST);
     }
 
     /**
@@ -187,27 +356,4 @@ public class CloudTrailPoller {
             log.error("onMessageReceive returned an exception", ex);
         }
     }
-
-    /**
-     * This method will lock this thread and wait for {@link #maxSleepTimeMs}
-     * or until {@link #unlock()} is invoked.
-     */
-    private void lock() {
-        synchronized (lock) {
-            try {
-                lock.wait(maxSleepTimeMs);
-            } catch (InterruptedException e) {
-                log.error("Lock wait timeout was interrupted with exception.", e);
-            }
-        }
-    }
-
-    /**
-     * Unlock this thread in case its locked.
-     */
-    private void unlock() {
-        synchronized (lock) {
-            lock.notifyAll();
-        }
-    }
 }
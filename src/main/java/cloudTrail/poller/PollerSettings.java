@@ -0,0 +1,99 @@
+package cloudTrail.poller;
+
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttribute;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings of a {@link CloudTrailPoller}.
+ *
+ * <p>When a time range is given it is split into {@link #concurrency} shards, every shard is paginated
+ * independently and concurrently with the others. Both ends of a shard are inclusive, so a shard ends
+ * one second, the resolution of the event times, before the next one starts.
+ * Without a time range there is a single shard walking the whole history, whatever the concurrency is.
+ * Every lookup attribute is polled as a separate stream, with its own time shards.
+ *
+ * <p>With {@link #tail} the unbounded shard follows the live events once it walked the whole history,
+ * instead of walking it again from the newest event.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PollerSettings {
+
+    /**
+     * Id under which the progress of this poller is checkpointed, every shard is checkpointed separately.
+     */
+    @Builder.Default
+    String streamId = "cloudtrail";
+
+    /**
+     * Maximum number of concurrent LookupEvents calls, one per shard.
+     */
+    @Builder.Default
+    int concurrency = 1;
+
+    /**
+     * Inclusive start of the time range to be polled, optional.
+     */
+    Instant startTime;
+
+    /**
+     * Inclusive end of the time range to be polled, defaults to now when only {@link #startTime} is given.
+     */
+    Instant endTime;
+
+    /**
+     * Attributes to be polled concurrently, one stream per attribute. All the events are polled when empty.
+     */
+    @Builder.Default
+    List<LookupAttribute> lookupAttributes = Collections.emptyList();
+
+    /**
+     * Number of pages of a shard which can be fetched ahead of their delivery,
+     * 1 means the next page is only fetched once the previous one was delivered.
+     * Calls are still only issued for requested messages.
+     */
+    @Builder.Default
+    int readAheadPages = 1;
+
+    /**
+     * Time a shard waits before being polled again after an empty page or a failed call.
+     */
+    @Builder.Default
+    Duration idleBackoff = Duration.ofSeconds(3);
+
+    /**
+     * Once the history was walked, only polls the events newer than the newest event seen, minus {@link #tailOverlap}.
+     * Only applies without a time range.
+     */
+    @Builder.Default
+    boolean tail = false;
+
+    /**
+     * Events this much older than the newest event seen are still polled in tail mode, as CloudTrail may deliver
+     * them late, usually within 15 minutes. The events of the overlap which were already delivered are skipped.
+     */
+    @Builder.Default
+    Duration tailOverlap = Duration.ofMinutes(15);
+
+    /**
+     * Shortest pause between two tail polls, used while every poll brings new events.
+     */
+    @Builder.Default
+    Duration tailMinInterval = Duration.ofMillis(500);
+
+    /**
+     * Longest pause between two tail polls, the pause doubles after every poll without new events up to this value.
+     */
+    @Builder.Default
+    Duration tailMaxInterval = Duration.ofSeconds(30);
+
+    public static PollerSettings defaults() {
+        return PollerSettings.builder().build();
+    }
+}
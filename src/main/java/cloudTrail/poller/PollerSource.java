@@ -0,0 +1,85 @@
+package cloudTrail.poller;
+
+import cloudTrail.checkpoint.CheckpointStore;
+import cloudTrail.client.LookupEvents;
+import cloudTrail.metrics.CloudTrailMetrics;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Events of a {@link CloudTrailPoller}, started on subscription and terminated on cancellation.
+ * The downstream demand is forwarded to the poller, so events are only polled when requested.
+ * The events complete once a time range was fully polled.
+ */
+public class PollerSource implements Supplier<Flux<Event>> {
+
+    private final LookupEvents lookupEvents;
+    private final PollerSettings pollerSettings;
+    private final CheckpointStore checkpointStore;
+    private final CloudTrailMetrics metrics;
+    private final Set<CloudTrailPoller> pollers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param metrics monitors the demand of the poller, optional
+     */
+    public PollerSource(
+            LookupEvents lookupEvents,
+            PollerSettings pollerSettings,
+            CheckpointStore checkpointStore,
+            CloudTrailMetrics metrics
+    ) {
+        this.lookupEvents = lookupEvents;
+        this.pollerSettings = pollerSettings;
+        this.checkpointStore = checkpointStore;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Flux<Event> get() {
+        return Flux.<Event>create(eventFluxSink -> {
+            CloudTrailPoller cloudTrailPoller = new CloudTrailPoller(
+                    eventFluxSink::next,
+                    lookupEvents,
+                    pollerSettings,
+                    checkpointStore,
+                    eventFluxSink::complete
+            );
+            if (metrics != null) {
+                metrics.monitor(cloudTrailPoller);
+            }
+            pollers.add(cloudTrailPoller);
+            eventFluxSink.onRequest(cloudTrailPoller::request);
+            eventFluxSink.onDispose(() -> {
+                cloudTrailPoller.terminate();
+                pollers.remove(cloudTrailPoller);
+                if (metrics != null) {
+                    metrics.unmonitor(cloudTrailPoller);
+                }
+            });
+            cloudTrailPoller.runAsync();
+        });
+    }
+
+    /**
+     * @return the oldest watermark of the pollers running, null if there is none or one has none,
+     * see {@link CloudTrailPoller#getWatermark()}
+     */
+    public Instant getWatermark() {
+        Instant watermark = null;
+        for (CloudTrailPoller poller : pollers) {
+            Instant pollerWatermark = poller.getWatermark();
+            if (pollerWatermark == null) {
+                return null;
+            }
+            if (watermark == null || pollerWatermark.isBefore(watermark)) {
+                watermark = pollerWatermark;
+            }
+        }
+        return watermark;
+    }
+}
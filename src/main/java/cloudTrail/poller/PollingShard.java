@@ -0,0 +1,389 @@
+package cloudTrail.poller;
+
+import models.Checkpoint;
+import models.LookupEventsQuery;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttribute;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * A time slice of the polled stream with its own pagination token.
+ *
+ * <p>Only one call per shard is in flight at a time, since a page can only be requested
+ * once the token of the previous page is known. Received pages are buffered until they are delivered,
+ * up to {@link PollerSettings#getReadAheadPages()} pages, so the next page is fetched while the previous ones
+ * are still being delivered.
+ *
+ * <p>In tail mode the unbounded shard polls windows starting at its watermark minus the overlap once it walked
+ * the whole history. A window is paginated like the history, the watermark is only moved once the window
+ * was fully polled, so a restarted poller does not miss the older pages of an interrupted window.
+ * The pause before the next window halves after a window with new events and doubles after an empty one.
+ * Once a window was fully polled and delivered, every event CloudTrail held when its first page was requested,
+ * with an event time not before the start of the window, was delivered, see {@link #getDeliveredUntil()}.
+ * An event CloudTrail surfaces later than the overlap behind a newer one is never polled.
+ */
+class PollingShard {
+
+    /**
+     * Resolution of the event times.
+     */
+    private static final Duration BOUNDARY_GAP = Duration.ofSeconds(1);
+
+    private final String streamId;
+    private Instant startTime;
+    private Instant endTime;
+    private final LookupAttribute lookupAttribute;
+    private final int readAheadPages;
+    private final Queue<Page> pages = new ArrayDeque<>();
+    private String next;
+    private Instant watermark;
+    private boolean inFlight;
+    private boolean exhausted;
+
+    private final boolean tail;
+    private final Duration tailOverlap;
+    private final Duration tailMinInterval;
+    private final Duration tailMaxInterval;
+
+    /**
+     * Ids of the events delivered within the overlap, to skip them when they are polled again.
+     */
+    private final Map<String, Instant> overlapIds = new HashMap<>();
+    private boolean tailing;
+    private Instant windowStart;
+    private Instant windowWatermark;
+    private int windowEvents;
+    private Duration tailInterval;
+    private Duration pause;
+    private Instant windowRequestedAt;
+    private Instant polledUntil;
+    private Instant deliveredUntil;
+
+    PollingShard(String streamId, Instant startTime, Instant endTime, LookupAttribute lookupAttribute, PollerSettings settings) {
+        this.streamId = streamId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.lookupAttribute = lookupAttribute;
+        this.readAheadPages = Math.max(1, settings.getReadAheadPages());
+        this.tail = settings.isTail() && startTime == null;
+        this.tailOverlap = settings.getTailOverlap();
+        this.tailMinInterval = settings.getTailMinInterval();
+        this.tailMaxInterval = settings.getTailMaxInterval();
+        this.tailInterval = tailMinInterval;
+    }
+
+    /**
+     * Splits the time range of the settings into {@link PollerSettings#getConcurrency()} shards,
+     * for every lookup attribute of the settings.
+     *
+     * @param settings see {@link PollerSettings}
+     * @return the shards, a single unbounded shard per attribute if no time range is configured
+     */
+    static List<PollingShard> split(PollerSettings settings) {
+        if (settings.getLookupAttributes().isEmpty()) {
+            return split(settings, settings.getStreamId(), null);
+        }
+
+        List<PollingShard> shards = new ArrayList<>();
+        for (LookupAttribute lookupAttribute : settings.getLookupAttributes()) {
+            String streamId = settings.getStreamId() + "/" + lookupAttribute.attributeKeyAsString() + "=" + lookupAttribute.attributeValue();
+            shards.addAll(split(settings, streamId, lookupAttribute));
+        }
+        return shards;
+    }
+
+    private static List<PollingShard> split(PollerSettings settings, String streamId, LookupAttribute lookupAttribute) {
+        if (settings.getStartTime() == null) {
+            return Collections.singletonList(
+                    new PollingShard(streamId, null, settings.getEndTime(), lookupAttribute, settings));
+        }
+
+        Instant start = settings.getStartTime();
+        Instant end = settings.getEndTime() == null ? Instant.now() : settings.getEndTime();
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("End time " + end + " must be after start time " + start);
+        }
+
+        int count = Math.max(1, settings.getConcurrency());
+        long step = Duration.between(start, end).toMillis() / count;
+        if (step < BOUNDARY_GAP.toMillis()) {
+            count = 1;
+        }
+
+        // the ids do not depend on the end, which defaults to now, so a restarted poller finds its checkpoints
+        // and resumes the range they record
+        List<PollingShard> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Instant shardStart = start.plusMillis(step * i);
+            // both ends of a query are inclusive, a shard ends one second before the next one starts
+            Instant shardEnd = i == count - 1 ? end : start.plusMillis(step * (i + 1)).minus(BOUNDARY_GAP);
+            shards.add(new PollingShard(
+                    streamId + "/" + start + "/" + i + "-of-" + count,
+                    shardStart,
+                    shardEnd,
+                    lookupAttribute,
+                    settings
+            ));
+        }
+        return shards;
+    }
+
+    /**
+     * @return true if a call can be issued for this shard.
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight || exhausted || pages.size() >= readAheadPages) {
+            return false;
+        }
+        inFlight = true;
+        return true;
+    }
+
+    /**
+     * Builds the query for the next page of this shard.
+     *
+     * @param limit maximum number of events to be returned
+     * @return see {@link LookupEventsQuery}
+     */
+    synchronized LookupEventsQuery query(int limit) {
+        if (tail && next == null) {
+            // first page of the history or of a window, the pages of a resumed token may be older
+            windowRequestedAt = Instant.now();
+        }
+        return LookupEventsQuery.builder()
+                .next(next)
+                .limit(limit)
+                .startTime(tailing ? windowStart : startTime)
+                .endTime(endTime)
+                .lookupAttribute(lookupAttribute)
+                .build();
+    }
+
+    /**
+     * Resumes this shard from a previous run.
+     *
+     * @param checkpoint last committed {@link Checkpoint} of this shard
+     */
+    synchronized void restore(Checkpoint checkpoint) {
+        if (isBounded() && checkpoint.getStartTime() != null && checkpoint.getEndTime() != null) {
+            startTime = checkpoint.getStartTime();
+            endTime = checkpoint.getEndTime();
+        }
+        next = checkpoint.getNextToken();
+        watermark = checkpoint.getWatermark();
+        exhausted = checkpoint.isCompleted() && isBounded();
+        if (tail && next == null && watermark != null) {
+            // the history was walked by a previous run
+            startWindow();
+        }
+    }
+
+    /**
+     * Moves this shard to the next page.
+     *
+     * <p>A bounded shard is exhausted once there are no more pages, the unbounded shard
+     * starts over from the newest event, or polls the next window in tail mode.
+     *
+     * @param response the last page received for this shard
+     * @return the events to be delivered, without the ones of the overlap already delivered in tail mode
+     */
+    synchronized List<Event> advance(LookupEventsResponse response) {
+        next = response.nextToken();
+        if (next == null && isBounded()) {
+            exhausted = true;
+        }
+        List<Event> events = response.hasEvents() ? response.events() : Collections.emptyList();
+        if (tail) {
+            events = skipDelivered(events);
+        }
+        for (Event event : events) {
+            if (tailing) {
+                windowWatermark = max(windowWatermark, event.eventTime());
+            } else {
+                watermark = max(watermark, event.eventTime());
+            }
+        }
+        if (tail && next == null) {
+            polledUntil = windowRequestedAt;
+            if (tailing) {
+                completeWindow(events.size());
+            } else {
+                // the history was walked, the shard is now caught up
+                startWindow();
+                pause = tailInterval;
+            }
+        } else if (tailing) {
+            windowEvents += events.size();
+        }
+        return events;
+    }
+
+    /**
+     * @return the pause requested by this shard before its next call, null if none, reset once taken.
+     */
+    synchronized Duration takePause() {
+        Duration taken = pause;
+        pause = null;
+        return taken;
+    }
+
+    /**
+     * In tail mode the token of a window cannot be resumed, so it is not checkpointed, and the watermark is the one
+     * of the last fully polled window.
+     */
+    synchronized Checkpoint checkpoint() {
+        return Checkpoint.builder()
+                .streamId(streamId)
+                .nextToken(tailing ? null : next)
+                .watermark(watermark)
+                .completed(exhausted)
+                .startTime(isBounded() ? startTime : null)
+                .endTime(isBounded() ? endTime : null)
+                .build();
+    }
+
+    /**
+     * @return the request time of the last window fully polled, to be recorded by its last page
+     */
+    synchronized Instant getPolledUntil() {
+        return polledUntil;
+    }
+
+    /**
+     * Records that the events of a page were handed downstream.
+     */
+    synchronized void delivered(Page page) {
+        deliveredUntil = max(deliveredUntil, page.getPolledUntil());
+    }
+
+    /**
+     * @return the time the first page of the last fully delivered window was requested, null until the history
+     * was polled in tail mode. Every event held by CloudTrail at that time was delivered, as far as its event time
+     * is not before the start of that window, the history covering every event time.
+     */
+    synchronized Instant getDeliveredUntil() {
+        return deliveredUntil;
+    }
+
+    private List<Event> skipDelivered(List<Event> events) {
+        Instant horizon = watermark == null ? null : watermark.minus(tailOverlap);
+        List<Event> delivered = new ArrayList<>(events.size());
+        for (Event event : events) {
+            boolean recent = event.eventId() != null && event.eventTime() != null
+                    && (horizon == null || !event.eventTime().isBefore(horizon));
+            if (recent && overlapIds.putIfAbsent(event.eventId(), event.eventTime()) != null) {
+                continue;
+            }
+            delivered.add(event);
+        }
+        return delivered;
+    }
+
+    private void completeWindow(int lastPageEvents) {
+        int events = windowEvents + lastPageEvents;
+        watermark = max(watermark, windowWatermark);
+        windowWatermark = null;
+        windowEvents = 0;
+        tailInterval = events > 0 ? max(tailMinInterval, tailInterval.dividedBy(2)) : min(tailMaxInterval, tailInterval.multipliedBy(2));
+        pause = tailInterval;
+        startWindow();
+
+        Instant horizon = windowStart;
+        overlapIds.values().removeIf(eventTime -> eventTime.isBefore(horizon));
+    }
+
+    private void startWindow() {
+        tailing = true;
+        next = null;
+        windowStart = (watermark == null ? Instant.now() : watermark).minus(tailOverlap);
+    }
+
+    private static Instant max(Instant current, Instant candidate) {
+        if (candidate == null || (current != null && !candidate.isAfter(current))) {
+            return current;
+        }
+        return candidate;
+    }
+
+    private static Duration max(Duration first, Duration second) {
+        return first.compareTo(second) >= 0 ? first : second;
+    }
+
+    private static Duration min(Duration first, Duration second) {
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    String getStreamId() {
+        return streamId;
+    }
+
+    synchronized void release() {
+        inFlight = false;
+    }
+
+    /**
+     * Buffers a received page until it is delivered.
+     */
+    synchronized void offer(Page page) {
+        pages.add(page);
+    }
+
+    /**
+     * @return the oldest buffered page or null if there is none.
+     */
+    synchronized Page pollPage() {
+        return pages.poll();
+    }
+
+    synchronized boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * @return true once this shard is exhausted, without any call in flight nor page left to deliver.
+     */
+    synchronized boolean isDrained() {
+        return exhausted && !inFlight && pages.isEmpty();
+    }
+
+    private boolean isBounded() {
+        return startTime != null;
+    }
+
+    /**
+     * Events of a received page, with the checkpoint to be committed once they were delivered.
+     */
+    static class Page {
+        private final List<Event> events;
+        private final Checkpoint checkpoint;
+        private final Instant polledUntil;
+
+        Page(List<Event> events, Checkpoint checkpoint, Instant polledUntil) {
+            this.events = events;
+            this.checkpoint = checkpoint;
+            this.polledUntil = polledUntil;
+        }
+
+        List<Event> getEvents() {
+            return events;
+        }
+
+        Checkpoint getCheckpoint() {
+            return checkpoint;
+        }
+
+        Instant getPolledUntil() {
+            return polledUntil;
+        }
+    }
+}
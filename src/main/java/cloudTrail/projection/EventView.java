@@ -0,0 +1,43 @@
+package cloudTrail.projection;
+
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+/**
+ * An {@link Event} with access to the projected fields of its {@link Event#cloudTrailEvent()} payload.
+ *
+ * <p>The payload is only scanned the first time a projected field is read.
+ */
+public class EventView {
+
+    private final Event event;
+    private final JsonProjection projection;
+    private String[] values;
+
+    public EventView(Event event, JsonProjection projection) {
+        this.event = event;
+        this.projection = projection;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * @param path one of the paths of the projection
+     * @return the value of the field, null when it is missing
+     */
+    public String get(String path) {
+        return get(projection.indexOf(path));
+    }
+
+    /**
+     * @param index see {@link JsonProjection#indexOf(String)}
+     * @return the value of the field, null when it is missing
+     */
+    public String get(int index) {
+        if (values == null) {
+            values = projection.extract(event.cloudTrailEvent());
+        }
+        return values[index];
+    }
+}
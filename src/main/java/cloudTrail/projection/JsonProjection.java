@@ -0,0 +1,127 @@
+package cloudTrail.projection;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts a fixed set of fields from a JSON document in a single streaming pass.
+ *
+ * <p>The paths are compiled once into a tree of field names. While scanning, subtrees which do not lead to
+ * a projected field are skipped without being materialized, and the scan stops as soon as every field was found.
+ * Only the values of the projected fields are allocated.
+ *
+ * <p>Paths are dot separated field names, e.g. {@code userIdentity.arn}. Only scalar values are extracted,
+ * a path pointing to an object or an array yields null. A path can only be listed once. Instances are thread safe.
+ */
+@Slf4j
+public class JsonProjection {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<String> paths;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final Node root = new Node();
+
+    private JsonProjection(List<String> paths) {
+        this.paths = Collections.unmodifiableList(new ArrayList<>(paths));
+        for (int i = 0; i < paths.size(); i++) {
+            if (indexes.putIfAbsent(paths.get(i), i) != null) {
+                throw new IllegalArgumentException("Path " + paths.get(i) + " is listed twice in " + paths);
+            }
+            Node node = root;
+            for (String field : paths.get(i).split("\\.")) {
+                node = node.children.computeIfAbsent(field, ignored -> new Node());
+            }
+            node.index = i;
+        }
+    }
+
+    public static JsonProjection compile(String... paths) {
+        return new JsonProjection(Arrays.asList(paths));
+    }
+
+    public static JsonProjection compile(List<String> paths) {
+        return new JsonProjection(paths);
+    }
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * @param path one of the compiled paths
+     * @return the index of the value of the path in the result of {@link #extract(String)}
+     */
+    public int indexOf(String path) {
+        Integer index = indexes.get(path);
+        if (index == null) {
+            throw new IllegalArgumentException("Path " + path + " is not part of the projection " + paths);
+        }
+        return index;
+    }
+
+    /**
+     * @param json the JSON document, may be null
+     * @return the value of every path, in the order they were compiled, null for missing fields
+     */
+    public String[] extract(String json) {
+        String[] values = new String[paths.size()];
+        if (json == null || values.length == 0) {
+            return values;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                readObject(parser, root, values, new int[]{values.length});
+            }
+        } catch (IOException e) {
+            log.warn("Failed to extract {} from the event", paths, e);
+        }
+        return values;
+    }
+
+    /**
+     * Reads the object the parser is positioned on.
+     *
+     * @param remaining number of values still to be found
+     * @return true once every value was found, so the scan can stop
+     */
+    private boolean readObject(JsonParser parser, Node node, String[] values, int[] remaining) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+                continue;
+            }
+
+            if (child.index >= 0 && token.isScalarValue()) {
+                values[child.index] = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                if (--remaining[0] == 0) {
+                    return true;
+                }
+            } else if (token == JsonToken.START_OBJECT && !child.children.isEmpty()) {
+                if (readObject(parser, child, values, remaining)) {
+                    return true;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private int index = -1;
+    }
+}
@@ -0,0 +1,19 @@
+package cloudTrail.service.publishers.handlers;
+
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+/**
+ * Handler written in the blocking style, for sinks such as JDBC or synchronous SDKs.
+ * It is run through a {@link VirtualThreadEventHandler}, never on the threads of the pipeline.
+ */
+@FunctionalInterface
+public interface BlockingEventHandler {
+
+    /***
+     * Handles the event, blocking until it is done
+     * @param event see {@link Event}
+     * @return the handled event, null when the event should not be emitted
+     * @throws Exception failing the handling of this event only
+     */
+    Event handle(Event event) throws Exception;
+}
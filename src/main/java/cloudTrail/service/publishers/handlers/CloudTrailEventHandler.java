@@ -1,20 +1,28 @@
 package cloudTrail.service.publishers.handlers;
 
-import cloudTrail.service.publishers.publisher.StandardOutputPublisher;
+import cloudTrail.service.publishers.publisher.EventPublisher;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 
+import java.util.List;
+
 @Slf4j
 public class CloudTrailEventHandler implements EventHandler {
 
-    private final StandardOutputPublisher standardOutputPublisher;
+    private final EventPublisher eventPublisher;
 
-    public CloudTrailEventHandler(StandardOutputPublisher standardOutputPublisher) {
-        this.standardOutputPublisher = standardOutputPublisher;
+    public CloudTrailEventHandler(EventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
     }
 
     public Mono<Event> handle(Event event) {
-        return standardOutputPublisher.processAndPublishEvent(event);
+        return eventPublisher.processAndPublishEvent(event);
+    }
+
+    @Override
+    public Flux<Event> handleBatch(List<Event> events) {
+        return eventPublisher.processAndPublishBatch(events);
     }
 }
@@ -1,8 +1,11 @@
 package cloudTrail.service.publishers.handlers;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 
+import java.util.List;
+
 public interface EventHandler {
 
     /***
@@ -11,4 +14,13 @@ public interface EventHandler {
      * @return
      */
     public Mono<Event> handle(Event event);
+
+    /***
+     * Handles a batch of events, one by one unless the handler knows better
+     * @param events see {@link Event}
+     * @return the handled events
+     */
+    default Flux<Event> handleBatch(List<Event> events) {
+        return Flux.fromIterable(events).flatMap(this::handle);
+    }
 }
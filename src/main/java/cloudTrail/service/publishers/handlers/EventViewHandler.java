@@ -0,0 +1,19 @@
+package cloudTrail.service.publishers.handlers;
+
+import cloudTrail.projection.EventView;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+/**
+ * Handler reading the fields of the CloudTrail payload through an {@link EventView}.
+ */
+@FunctionalInterface
+public interface EventViewHandler {
+
+    /***
+     * Handles the event recieved from the cloudTrail event
+     * @param eventView see {@link EventView}
+     * @return the handled event
+     */
+    Mono<Event> handle(EventView eventView);
+}
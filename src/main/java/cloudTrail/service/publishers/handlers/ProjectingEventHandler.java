@@ -0,0 +1,25 @@
+package cloudTrail.service.publishers.handlers;
+
+import cloudTrail.projection.EventView;
+import cloudTrail.projection.JsonProjection;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+/**
+ * {@link EventHandler} giving every event to an {@link EventViewHandler}, through the same compiled projection.
+ */
+public class ProjectingEventHandler implements EventHandler {
+
+    private final JsonProjection projection;
+    private final EventViewHandler eventViewHandler;
+
+    public ProjectingEventHandler(JsonProjection projection, EventViewHandler eventViewHandler) {
+        this.projection = projection;
+        this.eventViewHandler = eventViewHandler;
+    }
+
+    @Override
+    public Mono<Event> handle(Event event) {
+        return eventViewHandler.handle(new EventView(event, projection));
+    }
+}
@@ -0,0 +1,50 @@
+package cloudTrail.service.publishers.handlers;
+
+import cloudTrail.pipeline.VirtualThreads;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * {@link EventHandler} running a {@link BlockingEventHandler}, one virtual thread per call.
+ *
+ * <p>At most {@code maxConcurrency} calls run at once, the others wait for a permit on their own virtual thread,
+ * which costs no platform thread. Without virtual threads the calls run on the bounded elastic scheduler.
+ */
+public class VirtualThreadEventHandler implements EventHandler, AutoCloseable {
+
+    private final BlockingEventHandler blockingEventHandler;
+    private final Semaphore permits;
+    private final Scheduler scheduler;
+
+    public VirtualThreadEventHandler(BlockingEventHandler blockingEventHandler, int maxConcurrency) {
+        this.blockingEventHandler = blockingEventHandler;
+        this.permits = new Semaphore(maxConcurrency);
+        this.scheduler = VirtualThreads.newScheduler();
+    }
+
+    @Override
+    public Mono<Event> handle(Event event) {
+        return Mono.fromCallable(() -> {
+            permits.acquire();
+            try {
+                return blockingEventHandler.handle(event);
+            } finally {
+                permits.release();
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * Stops the virtual threads, the shared fallback scheduler is left running.
+     */
+    @Override
+    public void close() {
+        if (scheduler != Schedulers.boundedElastic()) {
+            scheduler.dispose();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cloudTrail.service.publishers.publisher;
+
+import cloudTrail.archive.EventArchive;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.List;
+
+/**
+ * Publishes the events to a local {@link EventArchive}, where they can be queried without calling CloudTrail again.
+ */
+public class ArchivePublisher extends EventPublisherSpecification {
+
+    private final EventArchive archive;
+
+    public ArchivePublisher(EventArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    protected Mono<Event> publish(Event event) {
+        return Mono.fromCallable(() -> {
+            archive.append(event);
+            return event;
+        });
+    }
+
+    @Override
+    protected Flux<Event> publishBatch(List<Event> events) {
+        return Flux.defer(() -> {
+            events.forEach(archive::append);
+            return Flux.fromIterable(events);
+        });
+    }
+}
@@ -1,8 +1,11 @@
 package cloudTrail.service.publishers.publisher;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 
+import java.util.List;
+
 public interface EventPublisher {
 
     /**
@@ -13,4 +16,11 @@ public interface EventPublisher {
      * @return The current event
      */
     Mono<Event> processAndPublishEvent(Event event);
+
+    /**
+     * Publishes a batch of events, letting the stream amortize its round trips over the whole batch.
+     *
+     * @return The published events
+     */
+    Flux<Event> processAndPublishBatch(List<Event> events);
 }
@@ -1,9 +1,12 @@
 package cloudTrail.service.publishers.publisher;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 
+import java.util.List;
+
 
 @Slf4j
 public abstract class EventPublisherSpecification implements EventPublisher {
@@ -13,10 +16,25 @@ public abstract class EventPublisherSpecification implements EventPublisher {
                 .doOnError(throwable -> log.error("Something went wrong", throwable));
     }
 
+    @Override
+    public Flux<Event> processAndPublishBatch(List<Event> events) {
+        return publishBatch(events)
+                .doOnError(throwable -> log.error("Something went wrong", throwable));
+    }
+
     /**
      * Provides a way to configure different emitter if required
      * @param event
      * @return
      */
     protected abstract Mono<Event> publish(Event event);
+
+    /**
+     * Publishes the events one after the other, emitters able to send a whole batch at once should override it
+     * @param events
+     * @return
+     */
+    protected Flux<Event> publishBatch(List<Event> events) {
+        return Flux.fromIterable(events).concatMap(this::publish);
+    }
 }
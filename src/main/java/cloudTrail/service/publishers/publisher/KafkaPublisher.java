@@ -1,11 +1,76 @@
 package cloudTrail.service.publishers.publisher;
 
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Publishes the events to a Kafka topic, keyed by event id, with the raw CloudTrail JSON as value.
+ *
+ * <p>A batch is sent without waiting for the acknowledgement of each record, the producer groups the records
+ * into compressed requests and the batch completes once every record is acknowledged.
+ * The number of batches in flight is bounded by the pipeline.
+ */
+@Slf4j
 public class KafkaPublisher extends EventPublisherSpecification {
+
+    private final Producer<String, String> producer;
+    private final String topic;
+
+    public KafkaPublisher(Producer<String, String> producer, String topic) {
+        this.producer = producer;
+        this.topic = topic;
+    }
+
+    /**
+     * Producer configuration favouring throughput: records are lingered into large lz4 compressed batches,
+     * and idempotence keeps the order of the records while several requests are in flight.
+     *
+     * @param bootstrapServers comma separated list of brokers
+     */
+    public static Producer<String, String> createProducer(String bootstrapServers) {
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+        properties.put(ProducerConfig.ACKS_CONFIG, "all");
+        properties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        return new KafkaProducer<>(properties);
+    }
+
+    @Override
+    protected Mono<Event> publish(Event event) {
+        return send(event);
+    }
+
     @Override
-    protected Mono<Event> publish(Event setting) {
-        return Mono.empty();
+    protected Flux<Event> publishBatch(List<Event> events) {
+        // every record is handed to the producer at once, the events are emitted in order as they are acknowledged
+        return Flux.fromIterable(events).flatMapSequential(this::send, Math.max(1, events.size()));
+    }
+
+    private Mono<Event> send(Event event) {
+        String value = event.cloudTrailEvent() != null ? event.cloudTrailEvent() : event.toString();
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, event.eventId(), value);
+        return Mono.create(sink -> producer.send(record, (metadata, exception) -> {
+            if (exception != null) {
+                sink.error(exception);
+            } else {
+                sink.success(event);
+            }
+        }));
     }
 }
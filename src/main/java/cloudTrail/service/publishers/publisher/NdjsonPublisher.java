@@ -0,0 +1,264 @@
+package cloudTrail.service.publishers.publisher;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Publishes the events as newline delimited JSON, to a file or to the standard output.
+ *
+ * <p>Publishing an event only offers it to a lock-free ring. A single writer thread drains the ring,
+ * encodes the events into a reused buffer and writes the buffer at once, when it is full or when
+ * the flush interval elapsed, so the output sees a few large writes instead of one per event.
+ * An event is emitted once it is in the ring, events still in the ring are written on {@link #close()}.
+ *
+ * <p>The raw CloudTrail JSON is embedded as is in the {@code cloudTrailEvent} field.
+ */
+@Slf4j
+public class NdjsonPublisher extends EventPublisherSpecification implements AutoCloseable {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final NdjsonSettings settings;
+    private final MpscRing<Event> ring;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Only accessed by the writer thread once started.
+     */
+    private final WriteBuffer buffer = new WriteBuffer();
+    private JsonGenerator generator;
+    private WritableByteChannel channel;
+    private long fileBytes;
+    private long lastWriteNanos;
+    private int rotations;
+
+    public NdjsonPublisher(NdjsonSettings settings) {
+        this.settings = settings;
+        this.ring = new MpscRing<>(settings.getRingCapacity());
+        this.generator = newGenerator();
+        openOutput();
+        this.writer = new Thread(this::run, "ndjson-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    protected Mono<Event> publish(Event event) {
+        // nothing is enqueued until the returned mono is subscribed to
+        return Mono.defer(() -> {
+            if (ring.offer(event)) {
+                return Mono.just(event);
+            }
+            // the writer is behind, waits for room away from the caller thread
+            return Mono.fromCallable(() -> {
+                while (!ring.offer(event)) {
+                    if (!running) {
+                        throw new IllegalStateException("The publisher is closed");
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                return event;
+            }).subscribeOn(Schedulers.boundedElastic());
+        });
+    }
+
+    /**
+     * Writes the events left in the ring and closes the output.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long flushIntervalNanos = settings.getFlushInterval().toNanos();
+        lastWriteNanos = System.nanoTime();
+        while (running || !ring.isEmpty()) {
+            int drained = 0;
+            Event event;
+            while ((event = ring.poll()) != null) {
+                encode(event);
+                drained++;
+                if (buffer.size >= settings.getBufferBytes()) {
+                    write();
+                }
+            }
+            if (buffer.size > 0 && System.nanoTime() - lastWriteNanos >= flushIntervalNanos) {
+                write();
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        write();
+        closeOutput();
+    }
+
+    private void encode(Event event) {
+        int mark = buffer.size;
+        try {
+            generator.writeStartObject();
+            writeField("eventId", event.eventId());
+            writeField("eventName", event.eventName());
+            writeField("eventTime", event.eventTime() == null ? null : event.eventTime().toString());
+            writeField("eventSource", event.eventSource());
+            writeField("username", event.username());
+            writeField("accessKeyId", event.accessKeyId());
+            writeField("readOnly", event.readOnly());
+            if (!event.resources().isEmpty()) {
+                generator.writeArrayFieldStart("resources");
+                for (Resource resource : event.resources()) {
+                    generator.writeStartObject();
+                    writeField("resourceType", resource.resourceType());
+                    writeField("resourceName", resource.resourceName());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            if (event.cloudTrailEvent() != null) {
+                generator.writeFieldName("cloudTrailEvent");
+                generator.writeRawValue(event.cloudTrailEvent());
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            generator.flush();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to encode event {}, it is skipped", event.eventId(), ex);
+            // the generator may be in the middle of the event, it starts over from the previous line
+            buffer.size = mark;
+            generator = newGenerator();
+        }
+    }
+
+    private void writeField(String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    private void write() {
+        if (buffer.size == 0) {
+            return;
+        }
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.bytes, 0, buffer.size);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (channel instanceof FileChannel) {
+                fileBytes += buffer.size;
+                if (settings.isForceOnFlush()) {
+                    ((FileChannel) channel).force(false);
+                }
+                if (settings.getRotateBytes() > 0 && fileBytes >= settings.getRotateBytes()) {
+                    rotate();
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Failed to write {} bytes of events", buffer.size, ex);
+        } finally {
+            buffer.size = 0;
+            lastWriteNanos = System.nanoTime();
+        }
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        Path file = settings.getFile();
+        Files.move(file, file.resolveSibling(file.getFileName() + "." + System.currentTimeMillis() + "-" + rotations++));
+        openOutput();
+    }
+
+    private void openOutput() {
+        if (settings.getFile() == null) {
+            channel = Channels.newChannel(new FileOutputStream(FileDescriptor.out));
+            return;
+        }
+        try {
+            FileChannel file = FileChannel.open(settings.getFile(), CREATE, WRITE, APPEND);
+            fileBytes = file.size();
+            channel = file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + settings.getFile(), e);
+        }
+    }
+
+    private void closeOutput() {
+        // the standard output is left open
+        if (channel instanceof FileChannel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error("Failed to close {}", settings.getFile(), e);
+            }
+        }
+    }
+
+    private JsonGenerator newGenerator() {
+        try {
+            JsonGenerator jsonGenerator = JSON_FACTORY.createGenerator(buffer);
+            jsonGenerator.setRootValueSeparator(new SerializedString(""));
+            return jsonGenerator;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Growable byte array, reused for every write.
+     */
+    private static class WriteBuffer extends OutputStream {
+        private byte[] bytes = new byte[64 * 1024];
+        private int size;
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package cloudTrail.service.publishers.publisher;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of an {@link NdjsonPublisher}.
+ */
+@Value
+@Builder
+public class NdjsonSettings {
+
+    /**
+     * File the events are appended to, the standard output when null.
+     */
+    Path file;
+
+    /**
+     * Number of events waiting for the writer, publishers wait when it is full.
+     */
+    @Builder.Default
+    int ringCapacity = 65_536;
+
+    /**
+     * Size of the write buffer, it is written once full.
+     */
+    @Builder.Default
+    int bufferBytes = 1024 * 1024;
+
+    /**
+     * Maximum time an event stays in the write buffer, zero writes as soon as the ring is drained.
+     */
+    @Builder.Default
+    Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * Forces the file to the disk after every write, instead of leaving it to the operating system.
+     */
+    @Builder.Default
+    boolean forceOnFlush = false;
+
+    /**
+     * The file is rotated once it holds that many bytes, never when 0.
+     */
+    @Builder.Default
+    long rotateBytes = 0;
+
+    public static NdjsonSettings defaults() {
+        return NdjsonSettings.builder().build();
+    }
+}
@@ -0,0 +1,258 @@
+package cloudTrail.spool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * FIFO queue of byte records on the local disk, split into memory-mapped segment files.
+ *
+ * <p>Records are appended to the last segment and read from the first one, a segment is deleted once read entirely.
+ * Each record is laid out as {@code [payload length][crc32][payload]}, followed by an empty header marking the end
+ * of the segment. The read position is kept in a small mapped file, so the spool resumes where it was left
+ * after a restart. Writes go to the page cache, segments are forced to disk when they are rolled and on close.
+ */
+@Slf4j
+public class DiskSpool implements AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String OFFSET_FILE = "spool.offset";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final FileChannel offsetChannel;
+    private final MappedByteBuffer offset;
+    private long records;
+    private long bytes;
+
+    /**
+     * @param segmentBytes size of a segment file, bounds the size of a record
+     */
+    public DiskSpool(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            offsetChannel = FileChannel.open(directory.resolve(OFFSET_FILE), CREATE, READ, WRITE);
+            offset = offsetChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES + Integer.BYTES);
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the spool at " + directory, e);
+        }
+    }
+
+    public synchronized void append(byte[] payload) {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes + Integer.BYTES > segmentBytes) {
+            throw new IllegalArgumentException("A record of " + payload.length + " bytes does not fit in a segment");
+        }
+
+        Segment tail = segments.getLast();
+        if (tail.buffer.position() + recordBytes + Integer.BYTES > tail.buffer.capacity()) {
+            tail.buffer.force();
+            tail = newSegment(tail.sequence + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        tail.buffer.putInt(payload.length);
+        tail.buffer.putInt((int) crc.getValue());
+        tail.buffer.put(payload);
+        tail.buffer.putInt(tail.buffer.position(), 0);
+        records++;
+        bytes += recordBytes;
+    }
+
+    /**
+     * @return the oldest record, or null if the spool is empty
+     */
+    public synchronized byte[] poll() {
+        while (true) {
+            Segment head = segments.getFirst();
+            ByteBuffer buffer = head.buffer;
+            int length = head.readPosition + HEADER_BYTES <= buffer.capacity() ? buffer.getInt(head.readPosition) : 0;
+            if (length > 0) {
+                byte[] payload = new byte[length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(head.readPosition + HEADER_BYTES);
+                view.get(payload);
+                head.readPosition += HEADER_BYTES + length;
+                records--;
+                bytes -= HEADER_BYTES + length;
+                saveOffset(head);
+                return payload;
+            }
+            if (segments.size() == 1) {
+                return null;
+            }
+            // the writer moved on, the head segment was read entirely
+            segments.removeFirst();
+            delete(head);
+            saveOffset(segments.getFirst());
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return records == 0;
+    }
+
+    /**
+     * @return number of records in the spool
+     */
+    public synchronized long size() {
+        return records;
+    }
+
+    /**
+     * @return bytes of the records in the spool, including their headers
+     */
+    public synchronized long sizeInBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+            offset.force();
+            offsetChannel.close();
+        } catch (IOException e) {
+            log.error("Failed to close the spool at {}", directory, e);
+        }
+    }
+
+    private void open() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                sequences.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(sequences);
+
+        long readSequence = offset.getLong(0);
+        int readPosition = offset.getInt(Long.BYTES);
+        for (long sequence : sequences) {
+            if (sequence < readSequence) {
+                // read entirely before the restart
+                Files.deleteIfExists(segmentFile(sequence));
+                continue;
+            }
+            Segment segment = mapSegment(sequence);
+            segment.readPosition = sequence == readSequence ? readPosition : 0;
+            scan(segment);
+            segments.addLast(segment);
+        }
+        if (segments.isEmpty()) {
+            newSegment(readSequence);
+        }
+        saveOffset(segments.getFirst());
+    }
+
+    /**
+     * Counts the unread records of a segment and moves its write position after the last valid one.
+     */
+    private void scan(Segment segment) {
+        ByteBuffer view = segment.buffer.duplicate();
+        int end = 0;
+        while (end + HEADER_BYTES <= view.capacity()) {
+            int length = view.getInt(end);
+            if (length <= 0 || end + HEADER_BYTES + length > view.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            view.position(end + HEADER_BYTES);
+            view.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != view.getInt(end + Integer.BYTES)) {
+                log.warn("Discarding a torn spool record in segment {} at offset {}", segment.sequence, end);
+                break;
+            }
+            if (end >= segment.readPosition) {
+                records++;
+                bytes += HEADER_BYTES + length;
+            }
+            end += HEADER_BYTES + length;
+        }
+        segment.buffer.position(end);
+        if (end + Integer.BYTES <= view.capacity()) {
+            segment.buffer.putInt(end, 0);
+        }
+        segment.readPosition = Math.min(segment.readPosition, end);
+    }
+
+    private Segment newSegment(long sequence) {
+        try {
+            Segment segment = mapSegment(sequence);
+            segment.buffer.putInt(0, 0);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create a spool segment in " + directory, e);
+        }
+    }
+
+    private Segment mapSegment(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(sequence), CREATE, READ, WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, channel.size()));
+        return new Segment(sequence, channel, buffer);
+    }
+
+    private void delete(Segment segment) {
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segmentFile(segment.sequence));
+        } catch (IOException e) {
+            log.warn("Failed to delete the spool segment {}", segment.sequence, e);
+        }
+    }
+
+    private void saveOffset(Segment head) {
+        offset.putLong(0, head.sequence);
+        offset.putInt(Long.BYTES, head.readPosition);
+    }
+
+    private Path segmentFile(long sequence) {
+        return directory.resolve(String.format("%020d%s", sequence, SEGMENT_SUFFIX));
+    }
+
+    private static class Segment {
+        private final long sequence;
+        private final FileChannel channel;
+
+        /**
+         * Its position is the write position.
+         */
+        private final MappedByteBuffer buffer;
+        private int readPosition;
+
+        Segment(long sequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
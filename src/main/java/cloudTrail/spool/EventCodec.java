@@ -0,0 +1,179 @@
+package cloudTrail.spool;
+
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of an {@link Event}.
+ *
+ * <p>Layout: {@code [version][flags][eventTime millis, varint, if present]} followed by the strings
+ * eventId, eventName, readOnly, accessKeyId, eventSource, username, the resources as a varint count
+ * and type/name pairs, and the raw cloudTrailEvent. A string is a varint of its UTF-8 length plus one,
+ * 0 standing for null, followed by its bytes.
+ */
+public class EventCodec {
+    private static final byte VERSION = 1;
+    private static final int HAS_EVENT_TIME = 1;
+
+    public static byte[] encode(Event event) {
+        Writer writer = new Writer(estimateSize(event));
+        writer.put(VERSION);
+        Instant eventTime = event.eventTime();
+        writer.put((byte) (eventTime != null ? HAS_EVENT_TIME : 0));
+        if (eventTime != null) {
+            writer.putVarLong(zigZag(eventTime.toEpochMilli()));
+        }
+        writer.putString(event.eventId());
+        writer.putString(event.eventName());
+        writer.putString(event.readOnly());
+        writer.putString(event.accessKeyId());
+        writer.putString(event.eventSource());
+        writer.putString(event.username());
+        List<Resource> resources = event.resources();
+        writer.putVarLong(resources.size());
+        for (Resource resource : resources) {
+            writer.putString(resource.resourceType());
+            writer.putString(resource.resourceName());
+        }
+        writer.putString(event.cloudTrailEvent());
+        return writer.toByteArray();
+    }
+
+    public static Event decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads an event from the position of the buffer, which is left after the event.
+     */
+    public static Event decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported event encoding version " + version);
+            }
+            int flags = buffer.get();
+            Event.Builder event = Event.builder();
+            if ((flags & HAS_EVENT_TIME) != 0) {
+                event.eventTime(Instant.ofEpochMilli(unZigZag(getVarLong(buffer))));
+            }
+            event.eventId(getString(buffer))
+                    .eventName(getString(buffer))
+                    .readOnly(getString(buffer))
+                    .accessKeyId(getString(buffer))
+                    .eventSource(getString(buffer))
+                    .username(getString(buffer));
+            int resourceCount = (int) getVarLong(buffer);
+            if (resourceCount > 0) {
+                List<Resource> resources = new ArrayList<>(resourceCount);
+                for (int i = 0; i < resourceCount; i++) {
+                    resources.add(Resource.builder()
+                            .resourceType(getString(buffer))
+                            .resourceName(getString(buffer))
+                            .build());
+                }
+                event.resources(resources);
+            }
+            return event.cloudTrailEvent(getString(buffer)).build();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated event", e);
+        }
+    }
+
+    private static int estimateSize(Event event) {
+        String payload = event.cloudTrailEvent();
+        return 128 + (payload == null ? 0 : payload.length());
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = (int) getVarLong(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (!buffer.hasArray()) {
+            byte[] utf8 = new byte[length];
+            buffer.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static class Writer {
+        private byte[] bytes;
+        private int size;
+
+        Writer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void put(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putVarLong(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(utf8.length + 1L);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package cloudTrail.spool;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings of a {@link SpoolingBuffer}.
+ */
+@Value
+@Builder
+public class SpoolSettings {
+
+    @Builder.Default
+    Path directory = Paths.get("spool");
+
+    /**
+     * Number of events kept on the heap before spilling to disk.
+     */
+    @Builder.Default
+    int ringCapacity = 10_000;
+
+    /**
+     * Size of a segment file of the spool.
+     */
+    @Builder.Default
+    int segmentBytes = 64 * 1024 * 1024;
+
+    /**
+     * Events stop being requested from upstream once the spool holds that many bytes.
+     */
+    @Builder.Default
+    long maxSpoolBytes = 1024L * 1024 * 1024;
+
+    public static SpoolSettings defaults() {
+        return SpoolSettings.builder().build();
+    }
+}
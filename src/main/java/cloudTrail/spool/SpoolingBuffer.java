@@ -0,0 +1,246 @@
+package cloudTrail.spool;
+
+import lombok.extern.slf4j.Slf4j;
+import models.SpoolStats;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers the events between the poller and a consumer which may stall, without holding them on the heap.
+ *
+ * <p>Events are kept in a bounded ring until it is full, then the ring and every new event are appended
+ * to a {@link DiskSpool}. As long as the spool is not empty every new event goes to the spool too,
+ * so the events keep their order, and the spool is replayed as fast as the consumer requests.
+ * Upstream is requested ahead of the consumer until the spool reaches {@link SpoolSettings#getMaxSpoolBytes()}.
+ *
+ * <p>The spool survives restarts, the events left in the ring are moved to it on {@link #close()},
+ * and the events spooled by a previous run are delivered first.
+ */
+@Slf4j
+public class SpoolingBuffer implements AutoCloseable {
+
+    private final Path directory;
+    private final DiskSpool spool;
+    private final long maxSpoolBytes;
+    private final int requestBatch;
+
+    /**
+     * Ring and spool are only accessed while holding this lock, which keeps the order of the events.
+     */
+    private final Object lock = new Object();
+    private final Event[] ring;
+    private int ringHead;
+    private int ringSize;
+
+    private final AtomicBoolean consumed = new AtomicBoolean();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private long lastSnapshotNanos = System.nanoTime();
+    private long lastSpilled;
+    private long lastReplayed;
+
+    public SpoolingBuffer(SpoolSettings settings) {
+        this.directory = settings.getDirectory();
+        this.spool = new DiskSpool(settings.getDirectory(), settings.getSegmentBytes());
+        this.maxSpoolBytes = settings.getMaxSpoolBytes();
+        this.ring = new Event[Math.max(1, settings.getRingCapacity())];
+        this.requestBatch = Math.max(1, ring.length / 2);
+    }
+
+    /**
+     * A spool has a single consumer, subscribing to the returned flux while another subscription
+     * is still active fails with an {@link IllegalStateException}.
+     */
+    public Flux<Event> apply(Flux<Event> events) {
+        return Flux.create(sink -> {
+            if (!consumed.compareAndSet(false, true)) {
+                sink.error(new IllegalStateException("The spool in " + directory + " already has a consumer"));
+                return;
+            }
+            new Drainer(sink).start(events);
+        });
+    }
+
+    public synchronized SpoolStats snapshot() {
+        long now = System.nanoTime();
+        double elapsedSeconds = Math.max(1, now - lastSnapshotNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        long spilledCount = spilled.get();
+        long replayedCount = replayed.get();
+        SpoolStats stats;
+        synchronized (lock) {
+            stats = SpoolStats.builder()
+                    .ringSize(ringSize)
+                    .spoolSize(spool.size())
+                    .spoolBytes(spool.sizeInBytes())
+                    .spilledCount(spilledCount)
+                    .replayedCount(replayedCount)
+                    .spillRatePerSecond((spilledCount - lastSpilled) / elapsedSeconds)
+                    .replayRatePerSecond((replayedCount - lastReplayed) / elapsedSeconds)
+                    .build();
+        }
+        lastSnapshotNanos = now;
+        lastSpilled = spilledCount;
+        lastReplayed = replayedCount;
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            spillRing();
+            spool.close();
+        }
+    }
+
+    private void store(Event event) {
+        synchronized (lock) {
+            if (spool.isEmpty() && ringSize < ring.length) {
+                ring[(ringHead + ringSize) % ring.length] = event;
+                ringSize++;
+            } else {
+                // the older events move to the spool first, so the spool alone holds the order from now on
+                spillRing();
+                spool.append(EventCodec.encode(event));
+                spilled.incrementAndGet();
+            }
+        }
+    }
+
+    private Event take() {
+        synchronized (lock) {
+            if (ringSize > 0) {
+                Event event = ring[ringHead];
+                ring[ringHead] = null;
+                ringHead = (ringHead + 1) % ring.length;
+                ringSize--;
+                return event;
+            }
+            byte[] record = spool.poll();
+            if (record == null) {
+                return null;
+            }
+            replayed.incrementAndGet();
+            return EventCodec.decode(record);
+        }
+    }
+
+    private boolean isEmpty() {
+        synchronized (lock) {
+            return ringSize == 0 && spool.isEmpty();
+        }
+    }
+
+    private boolean isSpoolFull() {
+        synchronized (lock) {
+            return spool.sizeInBytes() >= maxSpoolBytes;
+        }
+    }
+
+    /**
+     * Moves the events of the ring to the spool, which is empty whenever the ring is not.
+     */
+    private void spillRing() {
+        while (ringSize > 0) {
+            Event event = ring[ringHead];
+            ring[ringHead] = null;
+            ringHead = (ringHead + 1) % ring.length;
+            ringSize--;
+            spool.append(EventCodec.encode(event));
+            spilled.incrementAndGet();
+        }
+    }
+
+    private class Drainer extends BaseSubscriber<Event> {
+        private final FluxSink<Event> sink;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong outstanding = new AtomicLong();
+        private volatile boolean done;
+
+        Drainer(FluxSink<Event> sink) {
+            this.sink = sink;
+        }
+
+        void start(Flux<Event> events) {
+            sink.onRequest(ignored -> drain());
+            sink.onDispose(() -> {
+                dispose();
+                consumed.set(false);
+            });
+            events.subscribe(this);
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            drain();
+        }
+
+        @Override
+        protected void hookOnNext(Event event) {
+            outstanding.decrementAndGet();
+            try {
+                store(event);
+            } catch (RuntimeException ex) {
+                log.error("Failed to spool an event, it is dropped", ex);
+            }
+            drain();
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            // the buffered events stay in the spool for the next run
+            sink.error(throwable);
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                while (!sink.isCancelled() && sink.requestedFromDownstream() > 0) {
+                    Event event = take();
+                    if (event == null) {
+                        break;
+                    }
+                    sink.next(event);
+                }
+                if (done && isEmpty()) {
+                    sink.complete();
+                    return;
+                }
+                requestMore();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Keeps a batch of events requested from upstream, unless the spool is full.
+         */
+        private void requestMore() {
+            if (done || isDisposed() || isSpoolFull()) {
+                return;
+            }
+            long missing = requestBatch - outstanding.get();
+            if (missing >= requestBatch / 2) {
+                outstanding.addAndGet(missing);
+                request(missing);
+            }
+        }
+    }
+}
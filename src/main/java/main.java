@@ -3,6 +3,8 @@ import cloudTrail.factory.CloutTrailConfigFactory;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+
 @Slf4j
 public class main {
 
@@ -14,6 +16,7 @@ public class main {
                 .doOnError(throwable -> log.error("Something went wrong"))
                 .subscribeOn(Schedulers.boundedElastic())
                 .subscribe();
+        CloutTrailConfigFactory.getMetrics().report(Duration.ofMinutes(1));
 
         //This is a workaround to keep the main thread running (only needed in console application). This is nothing but creating a deadlock sitaution.
         // currentThread is a main thread which is infact for a main thread and boom deadlock. Should we have created a server, we would not need this
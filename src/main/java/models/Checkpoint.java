@@ -0,0 +1,38 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Progress of a polled stream.
+ */
+@Value
+@Builder(toBuilder = true)
+public class Checkpoint {
+
+    String streamId;
+
+    /**
+     * Pagination token of the next page, null when the stream starts over from the newest event.
+     */
+    String nextToken;
+
+    /**
+     * Newest event time seen on the stream, null if no event was seen yet.
+     */
+    Instant watermark;
+
+    /**
+     * True once a bounded stream has no more pages.
+     */
+    boolean completed;
+
+    /**
+     * Time range of a bounded stream, as computed by the run which started it, null for an unbounded stream.
+     */
+    Instant startTime;
+
+    Instant endTime;
+}
@@ -0,0 +1,32 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of an event id deduplicator.
+ */
+@Value
+@Builder
+public class DeduplicationStats {
+
+    /**
+     * Events dropped because their id was already seen.
+     */
+    long hits;
+
+    /**
+     * Events let through because their id was not seen yet.
+     */
+    long misses;
+
+    /**
+     * Ids forgotten to make room for new ones.
+     */
+    long evictions;
+
+    /**
+     * Ids currently remembered.
+     */
+    long size;
+}
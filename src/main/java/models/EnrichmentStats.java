@@ -0,0 +1,21 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of an enrichment cache, counted since the cache was created.
+ */
+@Value
+@Builder
+public class EnrichmentStats {
+    long hits;
+    long misses;
+    double hitRate;
+    long loads;
+    long loadFailures;
+    long refreshes;
+    long evictions;
+    int size;
+    HistogramSnapshot loadLatencyMicros;
+}
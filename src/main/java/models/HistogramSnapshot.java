@@ -0,0 +1,19 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of a histogram, percentiles are accurate to about 2%.
+ */
+@Value
+@Builder
+public class HistogramSnapshot {
+    long count;
+    double mean;
+    long p50;
+    long p90;
+    long p99;
+    long p999;
+    long max;
+}
@@ -0,0 +1,39 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Ownership of a unit of work, such as an (account, region) stream or a time window.
+ */
+@Value
+@Builder(toBuilder = true)
+public class Lease {
+
+    String leaseKey;
+
+    /**
+     * Id of the instance holding the lease, null once released.
+     */
+    String owner;
+
+    /**
+     * The lease can be claimed by any instance after this time, unless renewed.
+     */
+    Instant expiresAt;
+
+    /**
+     * Incremented every time the lease changes owner, so a former owner can tell it lost the lease.
+     */
+    long epoch;
+
+    public boolean isHeldBy(String instanceId, Instant now) {
+        return instanceId.equals(owner) && expiresAt.isAfter(now);
+    }
+
+    public boolean isFree(Instant now) {
+        return owner == null || !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,24 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttribute;
+
+import java.time.Instant;
+
+/**
+ * Parameters of a single LookupEvents call.
+ *
+ * <p>{@code startTime} and {@code endTime} are optional, when both are absent the whole
+ * event history is paged starting from the newest event. {@code lookupAttribute} is optional as well.
+ */
+@Value
+@Builder(toBuilder = true)
+public class LookupEventsQuery {
+
+    String next;
+    int limit;
+    Instant startTime;
+    Instant endTime;
+    LookupAttribute lookupAttribute;
+}
@@ -0,0 +1,37 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of the metrics of a poller and its pipeline, counters are totals since the start.
+ */
+@Value
+@Builder
+public class MetricsSnapshot {
+    long lookupCalls;
+    long lookupErrors;
+    long emptyPages;
+
+    /**
+     * Share of the successful calls returning no event.
+     */
+    double emptyPageRatio;
+    long eventsPolled;
+    long eventsHandled;
+    long handlerErrors;
+
+    /**
+     * Messages requested downstream and not yet asked to CloudTrail.
+     */
+    long requested;
+    int concurrentCalls;
+    HistogramSnapshot lookupLatencyMicros;
+    HistogramSnapshot eventsPerPage;
+    HistogramSnapshot handlerLatencyMicros;
+
+    /**
+     * Time between the event and the end of its handling.
+     */
+    HistogramSnapshot lagMillis;
+}
@@ -0,0 +1,26 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of an adaptive rate limiter.
+ */
+@Value
+@Builder
+public class RateLimiterStats {
+
+    /**
+     * Permits per second currently granted.
+     */
+    double currentRate;
+    long acquiredCount;
+    long throttleCount;
+
+    /**
+     * Total time callers were delayed to stay under the rate.
+     */
+    Duration totalWaitTime;
+}
@@ -0,0 +1,19 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Snapshot of a spooling buffer, rates are averaged since the previous snapshot.
+ */
+@Value
+@Builder
+public class SpoolStats {
+    int ringSize;
+    long spoolSize;
+    long spoolBytes;
+    long spilledCount;
+    long replayedCount;
+    double spillRatePerSecond;
+    double replayRatePerSecond;
+}
@@ -0,0 +1,25 @@
+package models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Number of events of an event-time window, by aggregation key.
+ */
+@Value
+@Builder
+public class WindowSummary {
+    Instant windowStart;
+    Instant windowEnd;
+    Map<String, Long> counts;
+    long total;
+
+    /**
+     * Events dropped since the previous summary, because they arrived after their windows were closed
+     * or had no event time.
+     */
+    long droppedEvents;
+}
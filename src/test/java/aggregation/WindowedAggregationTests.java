@@ -0,0 +1,167 @@
+package aggregation;
+
+import cloudTrail.pipeline.CloudTrailPipeline;
+import cloudTrail.pipeline.PipelineSettings;
+import cloudTrail.pipeline.aggregation.AggregationKeys;
+import cloudTrail.pipeline.aggregation.AggregationSettings;
+import cloudTrail.pipeline.aggregation.WindowedAggregation;
+import cloudTrail.service.publishers.handlers.EventHandler;
+import models.WindowSummary;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WindowedAggregationTests {
+    private static final Instant MINUTE = Instant.parse("2021-06-01T10:00:00Z");
+
+    @Test
+    public void shouldCountTheEventsOfTumblingWindows() {
+        // prepare
+        List<WindowSummary> summaries = new CopyOnWriteArrayList<>();
+        WindowedAggregation aggregation = new WindowedAggregation(AggregationSettings.builder()
+                .summaries(summaries::add)
+                .key(AggregationKeys.EVENT_NAME)
+                .allowedLateness(Duration.ofSeconds(10))
+                .build());
+        Flux<Event> events = Flux.just(
+                event("PutObject", 5),
+                event("GetObject", 20),
+                event("PutObject", 65),
+                event("PutObject", 50),
+                event("GetObject", 80),
+                event("GetObject", 30));
+
+        // execute
+        List<Event> emitted = aggregation.apply(events).collectList().block();
+
+        // assert
+        assertThat(emitted.size(), is(0));
+        assertThat(summaries.size(), is(2));
+        assertThat(summaries.get(0).getWindowStart(), is(MINUTE));
+        assertThat(summaries.get(0).getCounts().get("PutObject"), is(2L));
+        assertThat(summaries.get(0).getCounts().get("GetObject"), is(1L));
+        assertThat(summaries.get(0).getTotal(), is(3L));
+        assertThat(summaries.get(1).getWindowStart(), is(MINUTE.plusSeconds(60)));
+        assertThat(summaries.get(1).getTotal(), is(2L));
+        assertThat(summaries.get(1).getDroppedEvents(), is(1L));
+    }
+
+    @Test
+    public void shouldCountAnEventInEveryOverlappingWindow() {
+        // prepare
+        List<WindowSummary> summaries = new CopyOnWriteArrayList<>();
+        WindowedAggregation aggregation = new WindowedAggregation(AggregationSettings.builder()
+                .summaries(summaries::add)
+                .windowSize(Duration.ofSeconds(60))
+                .slide(Duration.ofSeconds(30))
+                .emitRawEvents(true)
+                .build());
+
+        // execute
+        List<Event> emitted = aggregation.apply(Flux.just(event("PutObject", 45))).collectList().block();
+
+        // assert
+        assertThat(emitted.size(), is(1));
+        assertThat(summaries.size(), is(2));
+        assertThat(summaries.get(0).getWindowStart(), is(MINUTE));
+        assertThat(summaries.get(1).getWindowStart(), is(MINUTE.plusSeconds(30)));
+        assertThat(summaries.get(1).getCounts().get("s3.amazonaws.com/PutObject"), is(1L));
+    }
+
+    @Test
+    public void shouldCloseTheWindowsOnceTheSourceWatermarkPassedThem() throws InterruptedException {
+        // prepare
+        List<WindowSummary> summaries = new CopyOnWriteArrayList<>();
+        AtomicReference<Instant> watermark = new AtomicReference<>();
+        WindowedAggregation aggregation = new WindowedAggregation(AggregationSettings.builder()
+                .summaries(summaries::add)
+                .key(AggregationKeys.EVENT_NAME)
+                .allowedLateness(Duration.ofSeconds(10))
+                .watermark(watermark::get)
+                .watermarkInterval(Duration.ofMillis(10))
+                .build());
+        Sinks.Many<Event> events = Sinks.many().unicast().onBackpressureBuffer();
+        aggregation.apply(events.asFlux()).subscribe();
+
+        // execute
+        // the history is walked from the newest event
+        for (long second : new long[]{80, 65, 50, 30, 20, 5}) {
+            events.tryEmitNext(event("PutObject", second));
+        }
+        List<WindowSummary> beforeWatermark = new ArrayList<>(summaries);
+        watermark.set(MINUTE.plusSeconds(130));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (summaries.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        events.tryEmitComplete();
+
+        // assert
+        assertThat(beforeWatermark.size(), is(0));
+        assertThat(summaries.size(), is(2));
+        assertThat(summaries.get(0).getTotal(), is(4L));
+        assertThat(summaries.get(0).getDroppedEvents(), is(0L));
+        assertThat(summaries.get(1).getTotal(), is(2L));
+        assertThat(summaries.get(1).getDroppedEvents(), is(0L));
+    }
+
+    @Test
+    public void shouldKeepTheWindowOfAnEventBeingHandledOpen() throws InterruptedException {
+        // prepare
+        List<WindowSummary> summaries = new CopyOnWriteArrayList<>();
+        AtomicReference<Instant> watermark = new AtomicReference<>();
+        Sinks.One<Event> slowHandling = Sinks.one();
+        EventHandler handler = event -> "slow".equals(event.eventId()) ? slowHandling.asMono() : Mono.just(event);
+        Sinks.Many<Event> events = Sinks.many().unicast().onBackpressureBuffer();
+        CloudTrailPipeline pipeline = new CloudTrailPipeline(events::asFlux, handler, PipelineSettings.builder()
+                .aggregation(AggregationSettings.builder()
+                        .summaries(summaries::add)
+                        .allowedLateness(Duration.ofSeconds(10))
+                        .watermark(watermark::get)
+                        .watermarkInterval(Duration.ofMillis(10))
+                        .build())
+                .build());
+        pipeline.get().subscribe();
+        Event slow = event("PutObject", 30).toBuilder().eventId("slow").build();
+        events.tryEmitNext(slow);
+        events.tryEmitNext(event("PutObject", 65).toBuilder().eventId("fast").build());
+
+        // execute
+        watermark.set(MINUTE.plusSeconds(130));
+        Thread.sleep(100);
+        List<WindowSummary> whileHandling = new ArrayList<>(summaries);
+        slowHandling.tryEmitValue(slow);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (summaries.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        events.tryEmitComplete();
+
+        // assert
+        assertThat(whileHandling.size(), is(0));
+        assertThat(summaries.size(), is(2));
+        assertThat(summaries.get(0).getTotal(), is(1L));
+        assertThat(summaries.get(0).getDroppedEvents(), is(0L));
+        assertThat(summaries.get(1).getTotal(), is(1L));
+    }
+
+    private static Event event(String eventName, long second) {
+        return Event.builder()
+                .eventSource("s3.amazonaws.com")
+                .eventName(eventName)
+                .eventTime(MINUTE.plusSeconds(second))
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package archive;
+
+import cloudTrail.archive.ArchiveQuery;
+import cloudTrail.archive.ArchiveSettings;
+import cloudTrail.archive.EventArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EventArchiveTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldQueryTheArchivedEventsByTimeAndName() {
+        // prepare
+        Instant start = Instant.parse("2021-06-01T00:00:00Z");
+        ArchiveSettings settings = ArchiveSettings.builder()
+                .directory(directory)
+                .blockEvents(16)
+                .build();
+        EventArchive archive = new EventArchive(settings);
+
+        // execute
+        for (int i = 0; i < 300; i++) {
+            archive.append(Event.builder()
+                    .eventId(String.valueOf(i))
+                    .eventName(i % 3 == 0 ? "DeleteBucket" : "GetObject")
+                    .eventSource("s3.amazonaws.com")
+                    .eventTime(start.plus(Duration.ofMinutes(i)))
+                    .build());
+        }
+        archive.close();
+        EventArchive reopened = new EventArchive(settings);
+        List<Event> deletes = reopened.query(ArchiveQuery.builder()
+                        .startTime(start.plus(Duration.ofHours(1)))
+                        .endTime(start.plus(Duration.ofHours(2)))
+                        .eventName("DeleteBucket")
+                        .build())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        long all = reopened.query(ArchiveQuery.builder().build()).count().block(Duration.ofSeconds(10));
+        reopened.close();
+
+        // assert
+        assertThat(deletes.size(), is(20));
+        assertThat(deletes.get(0).eventId(), is("60"));
+        assertThat(deletes.get(19).eventId(), is("117"));
+        assertThat(all, is(300L));
+    }
+
+    @Test
+    public void shouldDropATornIndexEntryOnReopen() throws IOException {
+        // prepare
+        Instant start = Instant.parse("2021-06-01T00:00:00Z");
+        ArchiveSettings settings = ArchiveSettings.builder()
+                .directory(directory)
+                .blockEvents(10)
+                .build();
+        EventArchive archive = new EventArchive(settings);
+        for (int i = 0; i < 10; i++) {
+            archive.append(Event.builder().eventId(String.valueOf(i)).eventTime(start.plusSeconds(i)).build());
+        }
+        archive.close();
+        Path indexFile = directory.resolve("20210601-00.idx");
+        Files.write(indexFile, new byte[]{0, 0, 0, 0, 0, 1}, StandardOpenOption.APPEND);
+
+        // execute
+        EventArchive reopened = new EventArchive(settings);
+        for (int i = 10; i < 20; i++) {
+            reopened.append(Event.builder().eventId(String.valueOf(i)).eventTime(start.plusSeconds(i)).build());
+        }
+        reopened.close();
+        EventArchive again = new EventArchive(settings);
+        long all = again.query(ArchiveQuery.builder().build()).count().block(Duration.ofSeconds(10));
+        again.close();
+
+        // assert
+        assertThat(all, is(20L));
+    }
+}
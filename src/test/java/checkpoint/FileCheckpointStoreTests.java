@@ -0,0 +1,72 @@
+package checkpoint;
+
+import cloudTrail.checkpoint.FileCheckpointStore;
+import models.Checkpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class FileCheckpointStoreTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldResumeFromTheLastCommit() {
+        // prepare
+        Instant watermark = Instant.parse("2021-06-01T00:00:00Z");
+        FileCheckpointStore store = new FileCheckpointStore(directory);
+
+        // execute
+        store.commit(checkpoint("stream-1", "token-1", watermark));
+        store.commit(checkpoint("stream-1", "token-2", watermark.plusSeconds(1)));
+        store.commit(checkpoint("stream-2", null, null));
+        store.close();
+        FileCheckpointStore reopened = new FileCheckpointStore(directory);
+
+        // assert
+        Checkpoint first = reopened.load("stream-1").get();
+        assertThat(first.getNextToken(), is("token-2"));
+        assertThat(first.getWatermark(), is(watermark.plusSeconds(1)));
+        assertThat(reopened.load("stream-2").get().getNextToken(), is(nullValue()));
+        assertThat(reopened.load("stream-3").isPresent(), is(false));
+        reopened.close();
+    }
+
+    @Test
+    public void shouldKeepTheLatestCommitsWhenCompacting() throws InterruptedException {
+        // prepare
+        FileCheckpointStore store = new FileCheckpointStore(directory, 256, Duration.ofMillis(1));
+
+        // execute
+        for (int i = 0; i < 500; i++) {
+            store.commit(checkpoint("stream-" + (i % 3), "token-" + i, null));
+            if (i % 50 == 0) {
+                Thread.sleep(5);
+            }
+        }
+        store.close();
+        FileCheckpointStore reopened = new FileCheckpointStore(directory, 256, Duration.ofMillis(1));
+
+        // assert
+        assertThat(reopened.load("stream-0").get().getNextToken(), is("token-498"));
+        assertThat(reopened.load("stream-1").get().getNextToken(), is("token-499"));
+        assertThat(reopened.load("stream-2").get().getNextToken(), is("token-497"));
+        reopened.close();
+    }
+
+    private static Checkpoint checkpoint(String streamId, String token, Instant watermark) {
+        return Checkpoint.builder()
+                .streamId(streamId)
+                .nextToken(token)
+                .watermark(watermark)
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package dedup;
+
+import cloudTrail.pipeline.dedup.DeduplicationSettings;
+import cloudTrail.pipeline.dedup.EventIdDeduplicator;
+import models.DeduplicationStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EventIdDeduplicatorTests {
+
+    @Test
+    public void shouldDropTheIdsAlreadySeen() {
+        // prepare
+        EventIdDeduplicator deduplicator = new EventIdDeduplicator(DeduplicationSettings.defaults());
+        String uuid = UUID.randomUUID().toString();
+
+        // execute & assert
+        assertThat(deduplicator.firstSeen(uuid), is(true));
+        assertThat(deduplicator.firstSeen(uuid), is(false));
+        assertThat(deduplicator.firstSeen("not-a-uuid"), is(true));
+        assertThat(deduplicator.firstSeen("not-a-uuid"), is(false));
+        assertThat(deduplicator.firstSeen(null), is(true));
+
+        DeduplicationStats stats = deduplicator.snapshot();
+        assertThat(stats.getHits(), is(2L));
+        assertThat(stats.getMisses(), is(2L));
+        assertThat(stats.getSize(), is(2L));
+    }
+
+    @Test
+    public void shouldForgetTheOldestGenerationWhenFull() {
+        // prepare
+        EventIdDeduplicator deduplicator = new EventIdDeduplicator(DeduplicationSettings.builder()
+                .maxEntries(200)
+                .offHeap(true)
+                .build());
+        String first = UUID.randomUUID().toString();
+        deduplicator.firstSeen(first);
+
+        // execute
+        for (int i = 0; i < 250; i++) {
+            deduplicator.firstSeen(UUID.randomUUID().toString());
+        }
+
+        // assert
+        assertThat(deduplicator.firstSeen(first), is(true));
+        assertThat(deduplicator.snapshot().getEvictions(), is(100L));
+    }
+}
@@ -0,0 +1,99 @@
+package enrichment;
+
+import cloudTrail.enrichment.EnrichmentCache;
+import cloudTrail.enrichment.EnrichmentSettings;
+import cloudTrail.enrichment.EventEnrichment;
+import cloudTrail.enrichment.InMemoryEnrichmentResolver;
+import models.EnrichmentStats;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EnrichmentCacheTests {
+
+    @Test
+    public void shouldShareTheLoadOfConcurrentMisses() {
+        // prepare
+        InMemoryEnrichmentResolver resolver = new InMemoryEnrichmentResolver(Duration.ofMillis(50))
+                .put("principal/alice", Collections.singletonMap("team", "payments"));
+        EnrichmentCache cache = new EnrichmentCache(resolver, EnrichmentSettings.defaults());
+
+        // execute
+        List<Map<String, Map<String, String>>> results = Flux.merge(
+                        cache.getAll(Collections.singletonList("principal/alice")),
+                        cache.getAll(Collections.singletonList("principal/alice")),
+                        cache.getAll(Collections.singletonList("principal/alice")))
+                .collectList()
+                .block();
+        Map<String, Map<String, String>> cached = cache.getAll(Collections.singletonList("principal/alice")).block();
+
+        // assert
+        assertThat(resolver.getCalls(), is(1L));
+        for (Map<String, Map<String, String>> result : results) {
+            assertThat(result.get("principal/alice").get("team"), is("payments"));
+        }
+        assertThat(cached.get("principal/alice").get("team"), is("payments"));
+        EnrichmentStats stats = cache.snapshot();
+        assertThat(stats.getHits(), is(1L));
+        assertThat(stats.getMisses(), is(3L));
+        assertThat(stats.getLoadLatencyMicros().getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldResolveTheKeysOfABurstInBatches() {
+        // prepare
+        InMemoryEnrichmentResolver resolver = new InMemoryEnrichmentResolver()
+                .put("principal/alice", Collections.singletonMap("team", "payments"))
+                .put("resource/bucket", Collections.singletonMap("owner", "storage"));
+        EventEnrichment enrichment = new EventEnrichment(resolver, EnrichmentSettings.builder()
+                .batchSize(10)
+                .build());
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(Event.builder()
+                    .eventId("id-" + i)
+                    .username(i % 2 == 0 ? "alice" : "bob")
+                    .resources(Resource.builder().resourceName("bucket").build())
+                    .build());
+        }
+
+        // execute
+        List<Event> enriched = enrichment.apply(Flux.fromIterable(events)).collectList().block();
+
+        // assert
+        assertThat(enriched, is(events));
+        assertThat(resolver.getCalls(), is(1L));
+        assertThat(enrichment.principal(events.get(0)).get("team"), is("payments"));
+        assertThat(enrichment.principal(events.get(1)) == null, is(true));
+        assertThat(enrichment.resources(events.get(1)).get("bucket").get("owner"), is("storage"));
+    }
+
+    @Test
+    public void shouldEvictTheOldestKeys() {
+        // prepare
+        EnrichmentCache cache = new EnrichmentCache(new InMemoryEnrichmentResolver(), EnrichmentSettings.builder()
+                .maxEntries(2)
+                .build());
+
+        // execute
+        for (String key : Arrays.asList("a", "b", "c")) {
+            cache.getAll(Collections.singletonList(key)).block();
+        }
+
+        // assert
+        EnrichmentStats stats = cache.snapshot();
+        assertThat(stats.getSize(), is(2));
+        assertThat(stats.getEvictions(), is(1L));
+    }
+}
@@ -0,0 +1,46 @@
+package fanin;
+
+import cloudTrail.fanin.WeightedFairMerge;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WeightedFairMergeTests {
+
+    @Test
+    public void shouldShareTheDemandByWeight() {
+        // prepare
+        Flux<String> busy = Flux.range(0, 1000).map(i -> "busy");
+        Flux<String> quiet = Flux.range(0, 1000).map(i -> "quiet");
+
+        // execute
+        List<String> merged = WeightedFairMerge.merge(Arrays.asList(busy, quiet), new int[]{3, 1}, 16)
+                .take(40)
+                .collectList()
+                .block();
+
+        // assert
+        assertThat(merged.stream().filter("busy"::equals).count(), is(30L));
+        assertThat(merged.stream().filter("quiet"::equals).count(), is(10L));
+    }
+
+    @Test
+    public void shouldCompleteOnceEverySourceCompleted() {
+        // prepare
+        Flux<String> failing = Flux.concat(Flux.just("a"), Flux.error(new IllegalStateException("failed")));
+        Flux<String> completing = Flux.just("b", "c");
+
+        // execute
+        List<String> merged = WeightedFairMerge.merge(Arrays.asList(failing, completing), new int[]{1, 1}, 4)
+                .collectList()
+                .block();
+
+        // assert
+        assertThat(merged, is(Arrays.asList("a", "b", "c")));
+    }
+}
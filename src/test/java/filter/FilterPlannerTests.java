@@ -0,0 +1,99 @@
+package filter;
+
+import cloudTrail.filter.EventFilter;
+import cloudTrail.filter.FilterPlan;
+import cloudTrail.filter.FilterPlanner;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupAttributeKey;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class FilterPlannerTests {
+
+    @Test
+    public void shouldPushDownTheMostSelectiveAttributeAsParallelQueries() {
+        // prepare
+        EventFilter filter = EventFilter.builder()
+                .eventSource("s3.amazonaws.com")
+                .eventName("PutObject")
+                .eventName("DeleteObject")
+                .build();
+
+        // execute
+        FilterPlan plan = FilterPlanner.plan(filter);
+
+        // assert
+        assertThat(plan.getLookupAttributes().size(), is(2));
+        assertThat(plan.getLookupAttributes().get(0).attributeKey(), is(LookupAttributeKey.EVENT_NAME));
+        assertThat(plan.getLookupAttributes().get(0).attributeValue(), is("PutObject"));
+        assertThat(plan.getLookupAttributes().get(1).attributeValue(), is("DeleteObject"));
+    }
+
+    @Test
+    public void shouldNotPushDownSeveralResourcesOfAnEvent() {
+        // prepare
+        EventFilter filter = EventFilter.builder()
+                .resourceName("bucket-1")
+                .resourceName("bucket-2")
+                .eventName("CopyObject")
+                .build();
+        Event copy = Event.builder()
+                .eventName("CopyObject")
+                .resources(
+                        Resource.builder().resourceType("AWS::S3::Bucket").resourceName("bucket-1").build(),
+                        Resource.builder().resourceType("AWS::S3::Bucket").resourceName("bucket-2").build())
+                .build();
+
+        // execute
+        FilterPlan plan = FilterPlanner.plan(filter);
+
+        // assert
+        assertThat(plan.getLookupAttributes().size(), is(1));
+        assertThat(plan.getLookupAttributes().get(0).attributeKey(), is(LookupAttributeKey.EVENT_NAME));
+        assertThat(plan.getPredicate().test(copy), is(true));
+    }
+
+    @Test
+    public void shouldEvaluateTheFilterInThePipeline() {
+        // prepare
+        EventFilter filter = EventFilter.builder()
+                .eventSource("s3.amazonaws.com")
+                .resourceType("AWS::S3::Bucket")
+                .readOnly(false)
+                .payloadField("sourceIPAddress", "10.0.0.1")
+                .build();
+        Event.Builder matching = Event.builder()
+                .eventSource("s3.amazonaws.com")
+                .readOnly("false")
+                .resources(Resource.builder().resourceType("AWS::S3::Bucket").resourceName("bucket").build())
+                .cloudTrailEvent("{\"sourceIPAddress\":\"10.0.0.1\"}");
+
+        // execute
+        FilterPlan plan = FilterPlanner.plan(filter);
+
+        // assert
+        assertThat(plan.getPredicate().test(matching.build()), is(true));
+        assertThat(plan.getPredicate().test(matching.build().toBuilder().readOnly("true").build()), is(false));
+        assertThat(plan.getPredicate().test(matching.build().toBuilder().cloudTrailEvent("{\"sourceIPAddress\":\"10.0.0.2\"}").build()), is(false));
+        assertThat(plan.getPredicate().test(matching.build().toBuilder().eventSource("ec2.amazonaws.com").build()), is(false));
+    }
+
+    @Test
+    public void shouldNotPushDownTooManyValues() {
+        // prepare
+        EventFilter filter = EventFilter.builder()
+                .eventName("a").eventName("b").eventName("c")
+                .build();
+
+        // execute
+        FilterPlan plan = FilterPlanner.plan(filter, 2);
+
+        // assert
+        assertThat(plan.getLookupAttributes().isEmpty(), is(true));
+        assertThat(plan.getPredicate().test(Event.builder().eventName("c").build()), is(true));
+        assertThat(plan.getPredicate().test(Event.builder().eventName("d").build()), is(false));
+    }
+}
@@ -0,0 +1,40 @@
+package handlers;
+
+import cloudTrail.service.publishers.handlers.VirtualThreadEventHandler;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualThreadEventHandlerTests {
+
+    @Test
+    public void shouldBoundTheBlockingCallsInFlight() {
+        // prepare
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        VirtualThreadEventHandler handler = new VirtualThreadEventHandler(event -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return event;
+        }, 4);
+
+        // execute
+        Long handled = Flux.range(0, 50)
+                .flatMap(i -> handler.handle(Event.builder().eventId(String.valueOf(i)).build()), 50)
+                .count()
+                .block(Duration.ofSeconds(30));
+        handler.close();
+
+        // assert
+        assertThat(handled, is(50L));
+        assertTrue(maxInFlight.get() <= 4);
+    }
+}
@@ -0,0 +1,50 @@
+package lanes;
+
+import cloudTrail.pipeline.lanes.OrderedLanes;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderedLanesTests {
+
+    @Test
+    public void shouldKeepTheOrderOfEveryKey() {
+        // prepare
+        OrderedLanes orderedLanes = new OrderedLanes(Event::eventSource, 3, 16, Schedulers.parallel());
+        Flux<Event> events = Flux.range(0, 200)
+                .map(i -> Event.builder()
+                        .eventId(String.valueOf(i))
+                        .eventSource("source-" + i % 5)
+                        .build());
+
+        // execute
+        List<Event> handled = orderedLanes.execute(events, lane -> lane.concatMap(event -> Mono.just(event)
+                        .delayElement(Duration.ofMillis(ThreadLocalRandom.current().nextInt(3)))))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        // assert
+        assertThat(handled.size(), is(200));
+        Map<String, Integer> lastIds = new HashMap<>();
+        for (Event event : handled) {
+            int id = Integer.parseInt(event.eventId());
+            Integer previous = lastIds.put(event.eventSource(), id);
+            assertTrue(previous == null || previous < id);
+        }
+        for (int depth : orderedLanes.depths()) {
+            assertThat(depth, is(0));
+        }
+    }
+}
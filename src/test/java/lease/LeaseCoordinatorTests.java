@@ -0,0 +1,160 @@
+package lease;
+
+import cloudTrail.checkpoint.CheckpointStore;
+import cloudTrail.checkpoint.SharedFileCheckpointStore;
+import cloudTrail.lease.FileLeaseStore;
+import cloudTrail.lease.LeaseCoordinator;
+import cloudTrail.lease.LeaseSettings;
+import models.Checkpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LeaseCoordinatorTests {
+    private static final List<String> UNITS = Arrays.asList("111/us-east-1", "111/eu-west-1", "222/us-east-1", "222/eu-west-1");
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Units being worked on, prefixed by the instance working on them.
+     */
+    private final Set<String> working = ConcurrentHashMap.newKeySet();
+
+    @Test
+    public void shouldSpreadTheUnitsWhenAnInstanceJoins() {
+        // prepare
+        LeaseCoordinator first = coordinator("first");
+        LeaseCoordinator second = coordinator("second");
+        first.rebalance();
+
+        // execute
+        for (int i = 0; i < 3; i++) {
+            second.rebalance();
+            first.rebalance();
+        }
+
+        // assert
+        assertThat(first.ownedUnits().size(), is(2));
+        assertThat(second.ownedUnits().size(), is(2));
+        Set<String> owned = new HashSet<>(first.ownedUnits());
+        owned.addAll(second.ownedUnits());
+        assertThat(owned, is(new HashSet<>(UNITS)));
+        assertThat(working.size(), is(UNITS.size()));
+    }
+
+    @Test
+    public void shouldTakeOverTheUnitsOfALeavingInstance() {
+        // prepare
+        LeaseCoordinator first = coordinator("first");
+        LeaseCoordinator second = coordinator("second");
+        first.rebalance();
+        second.rebalance();
+        first.rebalance();
+        assertTrue(first.ownedUnits().size() < UNITS.size());
+
+        // execute
+        first.close();
+        second.rebalance();
+
+        // assert
+        assertThat(second.ownedUnits(), is(new HashSet<>(UNITS)));
+        assertThat(working.size(), is(UNITS.size()));
+    }
+
+    @Test
+    public void shouldSpreadTheUnitsWhenAThirdInstanceJoinsABalancedPair() {
+        // prepare
+        LeaseCoordinator first = coordinator("first");
+        LeaseCoordinator second = coordinator("second");
+        LeaseCoordinator third = coordinator("third");
+        first.rebalance();
+        for (int i = 0; i < 3; i++) {
+            second.rebalance();
+            first.rebalance();
+        }
+
+        // execute
+        for (int i = 0; i < 3; i++) {
+            third.rebalance();
+            first.rebalance();
+            second.rebalance();
+        }
+
+        // assert
+        for (LeaseCoordinator coordinator : Arrays.asList(first, second, third)) {
+            assertTrue(coordinator.ownedUnits().size() >= 1);
+            assertTrue(coordinator.ownedUnits().size() <= 2);
+        }
+        Set<String> owned = new HashSet<>(first.ownedUnits());
+        owned.addAll(second.ownedUnits());
+        owned.addAll(third.ownedUnits());
+        assertThat(owned, is(new HashSet<>(UNITS)));
+        assertThat(working.size(), is(UNITS.size()));
+    }
+
+    @Test
+    public void shouldResumeAHandedOverUnitFromTheCheckpointOfItsPreviousOwner() {
+        // prepare
+        Path checkpoints = directory.resolve("checkpoints");
+        CheckpointStore firstStore = new SharedFileCheckpointStore(checkpoints);
+        CheckpointStore secondStore = new SharedFileCheckpointStore(checkpoints);
+        Map<String, String> resumedFrom = new ConcurrentHashMap<>();
+        LeaseCoordinator first = coordinator("first", resuming("first", firstStore, resumedFrom));
+        LeaseCoordinator second = coordinator("second", resuming("second", secondStore, resumedFrom));
+        first.rebalance();
+        for (String unit : UNITS) {
+            firstStore.commit(Checkpoint.builder().streamId(unit).nextToken(unit + "/page-5").build());
+        }
+
+        // execute
+        for (int i = 0; i < 3; i++) {
+            second.rebalance();
+            first.rebalance();
+        }
+
+        // assert
+        assertThat(second.ownedUnits().size(), is(2));
+        for (String unit : second.ownedUnits()) {
+            assertThat(resumedFrom.get("second/" + unit), is(unit + "/page-5"));
+        }
+    }
+
+    /**
+     * Records the token a unit resumes from when its work starts.
+     */
+    private static Function<String, Disposable> resuming(String instanceId, CheckpointStore store, Map<String, String> resumedFrom) {
+        return unit -> {
+            resumedFrom.put(instanceId + "/" + unit, store.load(unit).map(Checkpoint::getNextToken).orElse("start"));
+            return () -> { };
+        };
+    }
+
+    private LeaseCoordinator coordinator(String instanceId) {
+        return coordinator(instanceId, unit -> {
+            working.add(instanceId + "/" + unit);
+            return () -> working.remove(instanceId + "/" + unit);
+        });
+    }
+
+    private LeaseCoordinator coordinator(String instanceId, Function<String, Disposable> worker) {
+        return new LeaseCoordinator(new FileLeaseStore(directory), UNITS, worker, LeaseSettings.builder()
+                .instanceId(instanceId)
+                .leaseDuration(Duration.ofMinutes(1))
+                .build());
+    }
+}
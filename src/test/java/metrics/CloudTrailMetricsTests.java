@@ -0,0 +1,96 @@
+package metrics;
+
+import cloudTrail.client.LookupEvents;
+import cloudTrail.metrics.CloudTrailMetrics;
+import cloudTrail.metrics.Histogram;
+import cloudTrail.metrics.InstrumentedLookupEvents;
+import cloudTrail.poller.CloudTrailPoller;
+import models.HistogramSnapshot;
+import models.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CloudTrailMetricsTests {
+
+    @Test
+    public void shouldComputePercentilesWithinTheBucketError() {
+        // prepare
+        Histogram histogram = new Histogram();
+
+        // execute
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        // assert
+        assertThat(snapshot.getCount(), is(100_000L));
+        assertThat(snapshot.getMax(), is(100_000L));
+        assertThat(snapshot.getMean(), is(50_000.5));
+        assertTrue(Math.abs(snapshot.getP50() - 50_000) <= 50_000 / 64);
+        assertTrue(Math.abs(snapshot.getP99() - 99_000) <= 99_000 / 64);
+    }
+
+    @Test
+    public void shouldRecordEveryLookupEventsCall() {
+        // prepare
+        AtomicInteger calls = new AtomicInteger();
+        LookupEvents lookupEvents = (next, limit) -> {
+            if (calls.incrementAndGet() == 3) {
+                return Mono.error(new IllegalStateException("failed"));
+            }
+            LookupEventsResponse.Builder response = LookupEventsResponse.builder();
+            return Mono.just(calls.get() == 1
+                    ? response.events(Event.builder().build(), Event.builder().build()).build()
+                    : response.build());
+        };
+        CloudTrailMetrics metrics = new CloudTrailMetrics();
+        LookupEvents instrumented = new InstrumentedLookupEvents(lookupEvents, metrics);
+
+        // execute
+        for (int i = 0; i < 3; i++) {
+            instrumented.lookupEvents(null, 50).onErrorResume(throwable -> Mono.empty()).block();
+        }
+        MetricsSnapshot snapshot = metrics.snapshot();
+
+        // assert
+        assertThat(snapshot.getLookupCalls(), is(3L));
+        assertThat(snapshot.getLookupErrors(), is(1L));
+        assertThat(snapshot.getEventsPolled(), is(2L));
+        assertThat(snapshot.getEmptyPageRatio(), is(0.5));
+        assertThat(snapshot.getLookupLatencyMicros().getCount(), is(3L));
+    }
+
+    @Test
+    public void shouldSumTheDemandOfEveryMonitoredPoller() {
+        // prepare
+        CloudTrailMetrics metrics = new CloudTrailMetrics();
+        LookupEvents lookupEvents = (next, limit) -> Mono.empty();
+        CloudTrailPoller first = new CloudTrailPoller(event -> {
+        }, lookupEvents);
+        CloudTrailPoller second = new CloudTrailPoller(event -> {
+        }, lookupEvents);
+        CloudTrailPoller stopped = new CloudTrailPoller(event -> {
+        }, lookupEvents);
+
+        // execute
+        metrics.monitor(first);
+        metrics.monitor(second);
+        metrics.monitor(stopped);
+        metrics.unmonitor(stopped);
+        first.request(10L);
+        second.request(5L);
+        stopped.request(100L);
+
+        // assert
+        assertThat(metrics.snapshot().getRequested(), is(15L));
+    }
+}
@@ -1,17 +1,29 @@
 package poller;
 
+import cloudTrail.checkpoint.InMemoryCheckpointStore;
 import cloudTrail.client.LookupEvents;
 import cloudTrail.poller.CloudTrailPoller;
 import cloudTrail.poller.OnMessageReceived;
+import cloudTrail.poller.PollerSettings;
+import models.LookupEventsQuery;
 import org.junit.After;
 import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.cloudtrail.model.Event;
 import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.CoreMatchers.is;
@@ -51,6 +63,263 @@ public class CloudTrailerPollerTests {
         assertThat(cdl.getCount(), is(0L));
     }
 
+    @Test
+    public void shouldPollEveryShardOfTheTimeRange() throws InterruptedException {
+        // prepare
+        Instant start = Instant.parse("2021-06-01T00:00:00Z");
+        Set<Instant> polledShards = ConcurrentHashMap.newKeySet();
+        CountDownLatch cdl = new CountDownLatch(4);
+        LookupEvents lookupEvents = new LookupEvents() {
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+                return Mono.error(new IllegalStateException("The time range must be forwarded"));
+            }
+
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+                polledShards.add(query.getStartTime());
+                return Mono.just(LookupEventsResponse.builder()
+                        .events(Event.builder()
+                                .eventName("test-event")
+                                .eventTime(query.getStartTime())
+                                .build())
+                        .build());
+            }
+        };
+
+        // execute
+        polling = new CloudTrailPoller(event -> cdl.countDown(), lookupEvents, PollerSettings.builder()
+                .concurrency(4)
+                .startTime(start)
+                .endTime(start.plusSeconds(4 * 3600))
+                .build());
+        polling.runAsync();
+        polling.request(4L);
+
+        // assert
+        cdl.await(1L, SECONDS);
+        assertThat(cdl.getCount(), is(0L));
+        assertThat(polledShards.size(), is(4));
+    }
+
+    @Test
+    public void shouldNotOverlapTheQueriesOfAdjacentShards() throws InterruptedException {
+        // prepare
+        Instant start = Instant.parse("2021-06-01T00:00:00Z");
+        Queue<LookupEventsQuery> queries = new ConcurrentLinkedQueue<>();
+        CountDownLatch cdl = new CountDownLatch(4);
+        LookupEvents lookupEvents = new LookupEvents() {
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+                return Mono.error(new IllegalStateException("The time range must be forwarded"));
+            }
+
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+                queries.add(query);
+                cdl.countDown();
+                return Mono.just(LookupEventsResponse.builder().build());
+            }
+        };
+
+        // execute
+        polling = new CloudTrailPoller(event -> { }, lookupEvents, PollerSettings.builder()
+                .concurrency(4)
+                .startTime(start)
+                .endTime(start.plusSeconds(4 * 3600))
+                .build());
+        polling.runAsync();
+        polling.request(200L);
+
+        // assert
+        cdl.await(1L, SECONDS);
+        polling.terminate();
+        List<LookupEventsQuery> byStart = new ArrayList<>(queries);
+        byStart.sort(Comparator.comparing(LookupEventsQuery::getStartTime));
+        assertThat(byStart.size(), is(4));
+        assertThat(byStart.get(0).getStartTime(), is(start));
+        assertThat(byStart.get(3).getEndTime(), is(start.plusSeconds(4 * 3600)));
+        for (int i = 1; i < byStart.size(); i++) {
+            assertThat(byStart.get(i - 1).getEndTime().isBefore(byStart.get(i).getStartTime()), is(true));
+            assertThat(byStart.get(i - 1).getEndTime(), is(byStart.get(i).getStartTime().minusSeconds(1)));
+        }
+    }
+
+    @Test
+    public void shouldCompleteOnceEveryShardIsExhausted() throws InterruptedException {
+        // prepare
+        Instant start = Instant.parse("2021-06-01T00:00:00Z");
+        LookupEvents lookupEvents = new LookupEvents() {
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+                return Mono.error(new IllegalStateException("The time range must be forwarded"));
+            }
+
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+                return Mono.just(LookupEventsResponse.builder()
+                        .events(event(query.getStartTime().toString(), query.getStartTime()))
+                        .build());
+            }
+        };
+        Queue<String> received = new ConcurrentLinkedQueue<>();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        // execute
+        polling = new CloudTrailPoller(event -> received.add(event.eventId()), lookupEvents, PollerSettings.builder()
+                .concurrency(2)
+                .startTime(start)
+                .endTime(start.plusSeconds(2 * 3600))
+                .build(), new InMemoryCheckpointStore(), completed::countDown);
+        polling.runAsync();
+        polling.request(100L);
+
+        // assert
+        completed.await(1L, SECONDS);
+        assertThat(completed.getCount(), is(0L));
+        assertThat(received.size(), is(2));
+    }
+
+    @Test
+    public void shouldResumeAStartOnlyRangeAfterARestart() throws InterruptedException {
+        // prepare
+        Instant start = Instant.parse("2021-06-01T00:00:00Z");
+        BlockingQueue<LookupEventsQuery> queries = new LinkedBlockingQueue<>();
+        LookupEvents lookupEvents = new LookupEvents() {
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+                return Mono.error(new IllegalStateException("The time range must be forwarded"));
+            }
+
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+                queries.add(query);
+                if (query.getNext() != null) {
+                    return Mono.never();
+                }
+                return Mono.just(LookupEventsResponse.builder()
+                        .events(event("e1", start.plusSeconds(1)))
+                        .nextToken("page-2")
+                        .build());
+            }
+        };
+        InMemoryCheckpointStore checkpointStore = new InMemoryCheckpointStore();
+        PollerSettings settings = PollerSettings.builder().startTime(start).build();
+
+        polling = new CloudTrailPoller(event -> {
+        }, lookupEvents, settings, checkpointStore);
+        polling.runAsync();
+        polling.request(100L);
+        LookupEventsQuery first = queries.poll(1L, SECONDS);
+        queries.poll(1L, SECONDS);
+        polling.terminate();
+        Thread.sleep(5);
+
+        // execute
+        polling = new CloudTrailPoller(event -> {
+        }, lookupEvents, settings, checkpointStore);
+        polling.runAsync();
+        polling.request(100L);
+        LookupEventsQuery resumed = queries.poll(1L, SECONDS);
+
+        // assert
+        assertThat(resumed.getNext(), is("page-2"));
+        assertThat(resumed.getStartTime(), is(start));
+        assertThat(resumed.getEndTime(), is(first.getEndTime()));
+    }
+
+    @Test
+    public void shouldOnlyPollTheNewEventsOnceCaughtUp() throws InterruptedException {
+        // prepare
+        Instant newest = Instant.parse("2021-06-01T10:00:00Z");
+        Queue<LookupEventsQuery> queries = new ConcurrentLinkedQueue<>();
+        Queue<LookupEventsResponse> responses = new ConcurrentLinkedQueue<>();
+        responses.add(LookupEventsResponse.builder()
+                .events(event("e1", newest), event("e2", newest.minusSeconds(120)))
+                .build());
+        responses.add(LookupEventsResponse.builder()
+                .events(event("e3", newest.plusSeconds(60)), event("e1", newest))
+                .build());
+        LookupEvents lookupEvents = new LookupEvents() {
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(String next, int limit) {
+                return Mono.error(new IllegalStateException("The time range must be forwarded"));
+            }
+
+            @Override
+            public Mono<LookupEventsResponse> lookupEvents(LookupEventsQuery query) {
+                queries.add(query);
+                LookupEventsResponse response = responses.poll();
+                return Mono.just(response == null ? LookupEventsResponse.builder().build() : response);
+            }
+        };
+        Queue<String> received = new ConcurrentLinkedQueue<>();
+        CountDownLatch cdl = new CountDownLatch(3);
+
+        // execute
+        polling = new CloudTrailPoller(event -> {
+            received.add(event.eventId());
+            cdl.countDown();
+        }, lookupEvents, PollerSettings.builder()
+                .tail(true)
+                .tailOverlap(Duration.ofMinutes(1))
+                .tailMinInterval(Duration.ofMillis(10))
+                .tailMaxInterval(Duration.ofMillis(10))
+                .build());
+        polling.runAsync();
+        polling.request(100L);
+
+        // assert
+        cdl.await(1L, SECONDS);
+        polling.terminate();
+        assertThat(String.join(",", received), is("e1,e2,e3"));
+        LookupEventsQuery[] polled = queries.toArray(new LookupEventsQuery[0]);
+        assertThat(polled[0].getStartTime() == null, is(true));
+        assertThat(polled[1].getStartTime(), is(newest.minusSeconds(60)));
+    }
+
+    @Test
+    public void shouldMoveTheWatermarkOnceTheHistoryWasDelivered() throws InterruptedException {
+        // prepare
+        Instant started = Instant.now();
+        Queue<LookupEventsResponse> responses = new ConcurrentLinkedQueue<>();
+        responses.add(LookupEventsResponse.builder()
+                .events(event("e1", started.minusSeconds(60)))
+                .nextToken("page-2")
+                .build());
+        responses.add(LookupEventsResponse.builder()
+                .events(event("e2", started.minusSeconds(120)))
+                .build());
+        LookupEvents lookupEvents = (next, limit) -> {
+            LookupEventsResponse response = responses.poll();
+            return Mono.just(response == null ? LookupEventsResponse.builder().build() : response);
+        };
+        polling = new CloudTrailPoller(event -> { }, lookupEvents, PollerSettings.builder()
+                .tail(true)
+                .tailMinInterval(Duration.ofSeconds(10))
+                .build());
+        Instant beforeStart = polling.getWatermark();
+
+        // execute
+        polling.runAsync();
+        polling.request(100L);
+        long deadline = System.nanoTime() + SECONDS.toNanos(1);
+        while (polling.getWatermark() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // assert
+        Instant watermark = polling.getWatermark();
+        polling.terminate();
+        assertThat(beforeStart == null, is(true));
+        assertThat(watermark == null, is(false));
+        assertThat(watermark.isBefore(started), is(false));
+    }
+
+    private static Event event(String eventId, Instant eventTime) {
+        return Event.builder().eventId(eventId).eventTime(eventTime).build();
+    }
+
     private LookupEvents eventReceiver() {
         return (next, limit) ->
                 Mono.just(events.poll());
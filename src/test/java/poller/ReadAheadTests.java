@@ -0,0 +1,70 @@
+package poller;
+
+import cloudTrail.client.LookupEvents;
+import cloudTrail.poller.CloudTrailPoller;
+import cloudTrail.poller.PollerSettings;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * The time saved by read-ahead is measured by the {@code PollerBenchmark} of the jmh source set.
+ */
+public class ReadAheadTests {
+    private static final int PAGE_SIZE = 50;
+
+    @Test
+    public void shouldFetchTheNextPagesBeforeDeliveringTheFirstOne() throws InterruptedException {
+        assertThat(callsBeforeFirstDelivery(4), is(4));
+    }
+
+    @Test
+    public void shouldFetchOnePageAtATimeWithoutReadAhead() throws InterruptedException {
+        assertThat(callsBeforeFirstDelivery(1), is(1));
+    }
+
+    private int callsBeforeFirstDelivery(int readAheadPages) throws InterruptedException {
+        // prepare
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger callsAtFirstDelivery = new AtomicInteger(-1);
+        CountDownLatch cdl = new CountDownLatch(1);
+        LookupEvents lookupEvents = (next, limit) -> {
+            int page = calls.incrementAndGet();
+            List<Event> events = new ArrayList<>(limit);
+            for (int i = 0; i < limit; i++) {
+                events.add(Event.builder().eventName("test-event").build());
+            }
+            return Mono.just(LookupEventsResponse.builder()
+                    .events(events)
+                    .nextToken("page-" + (page + 1))
+                    .build());
+        };
+
+        // execute
+        CloudTrailPoller polling = new CloudTrailPoller(event -> {
+            if (callsAtFirstDelivery.compareAndSet(-1, calls.get())) {
+                cdl.countDown();
+            }
+        }, lookupEvents, PollerSettings.builder()
+                .readAheadPages(readAheadPages)
+                .build());
+        polling.runAsync();
+        polling.request((long) PAGE_SIZE * 10);
+        cdl.await(1L, SECONDS);
+        polling.terminate();
+
+        // assert
+        assertThat(cdl.getCount(), is(0L));
+        return callsAtFirstDelivery.get();
+    }
+}
@@ -0,0 +1,62 @@
+package projection;
+
+import cloudTrail.projection.EventView;
+import cloudTrail.projection.JsonProjection;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonProjectionTests {
+    private static final String PAYLOAD = "{"
+            + "\"eventVersion\":\"1.08\","
+            + "\"userIdentity\":{\"type\":\"IAMUser\",\"sessionContext\":{\"attributes\":{\"mfaAuthenticated\":\"false\"}},"
+            + "\"arn\":\"arn:aws:iam::123456789012:user/alice\"},"
+            + "\"resources\":[{\"ARN\":\"arn:aws:s3:::bucket\"}],"
+            + "\"sourceIPAddress\":\"10.0.0.1\","
+            + "\"requestParameters\":{\"bucketName\":\"bucket\",\"acl\":null},"
+            + "\"readOnly\":true"
+            + "}";
+
+    @Test
+    public void shouldExtractTheProjectedFields() {
+        // prepare
+        JsonProjection projection = JsonProjection.compile(
+                "userIdentity.arn", "sourceIPAddress", "requestParameters.bucketName", "readOnly", "missing.field");
+
+        // execute
+        String[] values = projection.extract(PAYLOAD);
+
+        // assert
+        assertThat(values[0], is("arn:aws:iam::123456789012:user/alice"));
+        assertThat(values[1], is("10.0.0.1"));
+        assertThat(values[2], is("bucket"));
+        assertThat(values[3], is("true"));
+        assertThat(values[4], is(nullValue()));
+    }
+
+    @Test
+    public void shouldRejectAPathListedTwice() {
+        // execute
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> JsonProjection.compile("sourceIPAddress", "userIdentity.arn", "sourceIPAddress"));
+
+        // assert
+        assertThat(rejected.getMessage().contains("sourceIPAddress"), is(true));
+    }
+
+    @Test
+    public void shouldReadTheProjectedFieldsThroughTheView() {
+        // prepare
+        JsonProjection projection = JsonProjection.compile("userIdentity.type", "requestParameters.acl");
+        EventView view = new EventView(Event.builder().cloudTrailEvent(PAYLOAD).build(), projection);
+
+        // execute & assert
+        assertThat(view.get("userIdentity.type"), is("IAMUser"));
+        assertThat(view.get("requestParameters.acl"), is(nullValue()));
+        assertThat(new EventView(Event.builder().build(), projection).get(0), is(nullValue()));
+    }
+}
@@ -0,0 +1,61 @@
+package publisher;
+
+import cloudTrail.service.publishers.publisher.KafkaPublisher;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class KafkaPublisherTests {
+
+    @Test
+    public void shouldPublishTheWholeBatchInOrder() {
+        // prepare
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        KafkaPublisher publisher = new KafkaPublisher(producer, "events");
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(Event.builder().eventId("id-" + i).cloudTrailEvent("{\"eventID\":\"id-" + i + "\"}").build());
+        }
+
+        // execute
+        List<Event> published = publisher.processAndPublishBatch(events).collectList().block();
+
+        // assert
+        assertThat(published, is(events));
+        assertThat(producer.history().size(), is(10));
+        assertThat(producer.history().get(3).key(), is("id-3"));
+        assertThat(producer.history().get(3).value(), is("{\"eventID\":\"id-3\"}"));
+    }
+
+    @Test
+    public void shouldFailTheBatchWhenARecordIsNotAcknowledged() {
+        // prepare
+        MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        KafkaPublisher publisher = new KafkaPublisher(producer, "events");
+        List<Event> events = new ArrayList<>();
+        events.add(Event.builder().eventId("id-1").build());
+        events.add(Event.builder().eventId("id-2").build());
+
+        List<Event> published = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        // execute
+        publisher.processAndPublishBatch(events).subscribe(published::add, error::set);
+        producer.completeNext();
+        producer.errorNext(new RuntimeException("broker unavailable"));
+
+        // assert
+        assertThat(published.size(), is(1));
+        assertThat(published.get(0), is(events.get(0)));
+        assertThat(error.get().getMessage(), is("broker unavailable"));
+    }
+}
@@ -0,0 +1,105 @@
+package publisher;
+
+import cloudTrail.service.publishers.publisher.NdjsonPublisher;
+import cloudTrail.service.publishers.publisher.NdjsonSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class NdjsonPublisherTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldWriteOneLinePerEventOnClose() throws IOException {
+        // prepare
+        Path file = directory.resolve("events.ndjson");
+        NdjsonPublisher publisher = new NdjsonPublisher(NdjsonSettings.builder()
+                .file(file)
+                .flushInterval(Duration.ofMinutes(1))
+                .build());
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(Event.builder()
+                    .eventId("id-" + i)
+                    .eventName("PutObject")
+                    .eventTime(Instant.ofEpochSecond(i))
+                    .resources(Resource.builder().resourceType("AWS::S3::Bucket").resourceName("bucket").build())
+                    .cloudTrailEvent("{\"eventID\":\"id-" + i + "\"}")
+                    .build());
+        }
+
+        // execute
+        List<Event> published = publisher.processAndPublishBatch(events).collectList().block();
+        publisher.close();
+
+        // assert
+        List<String> lines = Files.readAllLines(file);
+        assertThat(published.size(), is(1000));
+        assertThat(lines.size(), is(1000));
+        assertThat(lines.get(7), is("{\"eventId\":\"id-7\",\"eventName\":\"PutObject\",\"eventTime\":\"1970-01-01T00:00:07Z\","
+                + "\"resources\":[{\"resourceType\":\"AWS::S3::Bucket\",\"resourceName\":\"bucket\"}],"
+                + "\"cloudTrailEvent\":{\"eventID\":\"id-7\"}}"));
+    }
+
+    @Test
+    public void shouldRotateTheFileOnceItIsLargeEnough() throws IOException {
+        // prepare
+        Path file = directory.resolve("events.ndjson");
+        NdjsonPublisher publisher = new NdjsonPublisher(NdjsonSettings.builder()
+                .file(file)
+                .bufferBytes(64)
+                .rotateBytes(64)
+                .build());
+
+        // execute
+        for (int i = 0; i < 10; i++) {
+            publisher.processAndPublishEvent(Event.builder().eventId("id-" + i).eventName("PutObject").build()).block();
+        }
+        publisher.close();
+
+        // assert
+        long lines = 0;
+        try (var files = Files.list(directory)) {
+            for (Path written : (Iterable<Path>) files::iterator) {
+                lines += Files.readAllLines(written).size();
+            }
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files.count() > 1, is(true));
+        }
+        assertThat(lines, is(10L));
+    }
+
+    @Test
+    public void shouldOnlyWriteTheEventsSubscribedTo() throws IOException {
+        // prepare
+        Path file = directory.resolve("events.ndjson");
+        NdjsonPublisher publisher = new NdjsonPublisher(NdjsonSettings.builder()
+                .file(file)
+                .build());
+
+        // execute
+        publisher.processAndPublishEvent(Event.builder().eventId("assembled").build());
+        publisher.processAndPublishEvent(Event.builder().eventId("subscribed").build()).block();
+        publisher.close();
+
+        // assert
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines.size(), is(1));
+        assertThat(lines.get(0), is("{\"eventId\":\"subscribed\"}"));
+    }
+}
@@ -0,0 +1,81 @@
+package ratelimit;
+
+import cloudTrail.client.LookupEvents;
+import cloudTrail.client.ratelimit.AdaptiveRateLimiter;
+import cloudTrail.client.ratelimit.RateLimitedLookupEvents;
+import cloudTrail.client.ratelimit.RateLimiterSettings;
+import models.RateLimiterStats;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.cloudtrail.model.CloudTrailException;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimitedLookupEventsTests {
+
+    @Test
+    public void shouldBackOffOnThrottlingAndRecoverOnSuccess() {
+        // prepare
+        AtomicInteger throttledCalls = new AtomicInteger(3);
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(RateLimiterSettings.builder()
+                .initialRate(100)
+                .maxRate(100)
+                .burst(100)
+                .additiveIncrease(50)
+                .decreaseCooldown(Duration.ZERO)
+                .build());
+        LookupEvents lookupEvents = new RateLimitedLookupEvents(throttlingLookupEvents(throttledCalls), rateLimiter);
+
+        // execute
+        for (int i = 0; i < 3; i++) {
+            lookupEvents.lookupEvents(null, 50).onErrorResume(throwable -> Mono.empty()).block();
+        }
+        RateLimiterStats throttled = rateLimiter.snapshot();
+        for (int i = 0; i < 20; i++) {
+            lookupEvents.lookupEvents(null, 50).block();
+        }
+        RateLimiterStats recovered = rateLimiter.snapshot();
+
+        // assert
+        assertThat(throttled.getThrottleCount(), is(3L));
+        assertThat(throttled.getCurrentRate(), is(12.5));
+        assertTrue(recovered.getCurrentRate() > throttled.getCurrentRate());
+        assertThat(recovered.getAcquiredCount(), is(23L));
+    }
+
+    @Test
+    public void shouldDelayCallsOverTheRate() {
+        // prepare
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(RateLimiterSettings.builder()
+                .initialRate(10)
+                .burst(1)
+                .build());
+
+        // execute
+        Duration first = rateLimiter.reserve();
+        Duration second = rateLimiter.reserve();
+        Duration third = rateLimiter.reserve();
+
+        // assert
+        assertThat(first, is(Duration.ZERO));
+        assertTrue(second.toMillis() > 50L);
+        assertTrue(second.toMillis() < third.toMillis());
+    }
+
+    private static LookupEvents throttlingLookupEvents(AtomicInteger throttledCalls) {
+        return (next, limit) -> throttledCalls.getAndDecrement() > 0
+                ? Mono.error(CloudTrailException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").build())
+                .statusCode(400)
+                .message("Rate exceeded")
+                .build())
+                : Mono.just(LookupEventsResponse.builder().build());
+    }
+}
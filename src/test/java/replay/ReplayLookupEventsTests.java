@@ -0,0 +1,59 @@
+package replay;
+
+import cloudTrail.client.LookupEvents;
+import cloudTrail.client.replay.RecordingLookupEvents;
+import cloudTrail.client.replay.ReplayLookupEvents;
+import cloudTrail.client.replay.ReplaySettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.LookupEventsResponse;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ReplayLookupEventsTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldReplayTheRecordedPagesInOrder() {
+        // prepare
+        Path file = directory.resolve("lookup-events.rec");
+        AtomicInteger calls = new AtomicInteger();
+        LookupEvents live = (next, limit) -> Mono.just(LookupEventsResponse.builder()
+                .events(Event.builder()
+                        .eventId("event-" + calls.incrementAndGet())
+                        .eventTime(Instant.parse("2021-06-01T00:00:00Z"))
+                        .cloudTrailEvent("{\"eventVersion\":\"1.08\"}")
+                        .build())
+                .nextToken("live-token")
+                .build());
+        RecordingLookupEvents recording = new RecordingLookupEvents(live, file);
+
+        // execute
+        for (int i = 0; i < 3; i++) {
+            recording.lookupEvents(null, 50).block();
+        }
+        recording.close();
+        ReplayLookupEvents replay = new ReplayLookupEvents(file, ReplaySettings.defaults());
+        LookupEventsResponse first = replay.lookupEvents(null, 50).block();
+        LookupEventsResponse second = replay.lookupEvents(first.nextToken(), 50).block();
+        LookupEventsResponse third = replay.lookupEvents(second.nextToken(), 50).block();
+
+        // assert
+        assertThat(replay.size(), is(3));
+        assertThat(first.events().get(0).eventId(), is("event-1"));
+        assertThat(second.events().get(0).eventId(), is("event-2"));
+        assertThat(third.events().get(0).eventId(), is("event-3"));
+        assertThat(third.events().get(0).cloudTrailEvent(), is("{\"eventVersion\":\"1.08\"}"));
+        assertThat(third.nextToken(), is(nullValue()));
+    }
+}
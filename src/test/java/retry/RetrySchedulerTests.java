@@ -0,0 +1,68 @@
+package retry;
+
+import cloudTrail.pipeline.exceptions.EventHandlerRetryableException;
+import cloudTrail.pipeline.retry.RetryScheduler;
+import cloudTrail.pipeline.retry.RetrySettings;
+import cloudTrail.service.publishers.publisher.EventPublisherSpecification;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RetrySchedulerTests {
+
+    @Test
+    public void shouldRetryUntilSuccessAndDeadLetterTheRest() {
+        // prepare
+        Queue<Event> deadLetters = new ConcurrentLinkedQueue<>();
+        RetryScheduler retries = new RetryScheduler(RetrySettings.builder()
+                .maxAttempts(3)
+                .initialBackoff(Duration.ofMillis(10))
+                .tickDuration(Duration.ofMillis(5))
+                .wheelSize(8)
+                .deadLetterPublisher(new EventPublisherSpecification() {
+                    @Override
+                    protected Mono<Event> publish(Event event) {
+                        deadLetters.add(event);
+                        return Mono.just(event);
+                    }
+                })
+                .build());
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        Event recovering = Event.builder().eventId("recovering").build();
+        Event failing = Event.builder().eventId("failing").build();
+
+        // execute
+        retries.park(recovering);
+        retries.park(failing);
+        retries.complete();
+        List<Event> retried = retries.retried(event -> {
+                    int attempt = attempts.computeIfAbsent(event.eventId(), id -> new AtomicInteger(1)).incrementAndGet();
+                    if (event == failing || attempt < 3) {
+                        return Mono.error(new EventHandlerRetryableException("unavailable"));
+                    }
+                    return Mono.just(event);
+                })
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        retries.dispose();
+
+        // assert
+        assertThat(retried.size(), is(1));
+        assertThat(retried.get(0).eventId(), is("recovering"));
+        assertThat(attempts.get("recovering").get(), is(3));
+        assertThat(attempts.get("failing").get(), is(3));
+        assertThat(deadLetters.size(), is(1));
+        assertThat(deadLetters.peek().eventId(), is("failing"));
+    }
+}
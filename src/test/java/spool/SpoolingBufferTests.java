@@ -0,0 +1,121 @@
+package spool;
+
+import cloudTrail.spool.DiskSpool;
+import cloudTrail.spool.EventCodec;
+import cloudTrail.spool.SpoolSettings;
+import cloudTrail.spool.SpoolingBuffer;
+import models.SpoolStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.cloudtrail.model.Event;
+import software.amazon.awssdk.services.cloudtrail.model.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SpoolingBufferTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldEncodeAndDecodeAnEvent() {
+        // prepare
+        Event event = Event.builder()
+                .eventId("a5b6c7d8-0000-1111-2222-333344445555")
+                .eventName("PutObject")
+                .eventTime(Instant.parse("2021-06-01T00:00:00Z"))
+                .eventSource("s3.amazonaws.com")
+                .resources(Resource.builder().resourceType("AWS::S3::Bucket").resourceName("bucket").build())
+                .cloudTrailEvent("{\"userAgent\":\"é\"}")
+                .build();
+
+        // execute
+        Event decoded = EventCodec.decode(EventCodec.encode(event));
+
+        // assert
+        assertThat(decoded, is(event));
+    }
+
+    @Test
+    public void shouldResumeTheSpoolAfterARestart() {
+        // prepare
+        DiskSpool spool = new DiskSpool(directory, 64);
+
+        // execute
+        for (int i = 0; i < 10; i++) {
+            spool.append(("record-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        spool.poll();
+        spool.poll();
+        spool.close();
+        DiskSpool reopened = new DiskSpool(directory, 64);
+
+        // assert
+        assertThat(reopened.size(), is(8L));
+        for (int i = 2; i < 10; i++) {
+            assertThat(new String(reopened.poll(), StandardCharsets.UTF_8), is("record-" + i));
+        }
+        assertThat(reopened.poll(), is(nullValue()));
+        reopened.close();
+    }
+
+    @Test
+    public void shouldSpillOverTheRingAndReplayInOrder() {
+        // prepare
+        SpoolingBuffer buffer = new SpoolingBuffer(SpoolSettings.builder()
+                .directory(directory)
+                .ringCapacity(8)
+                .segmentBytes(4096)
+                .build());
+        Flux<Event> events = Flux.range(0, 100).map(i -> Event.builder().eventId(String.valueOf(i)).build());
+
+        // execute
+        List<Event> delivered = buffer.apply(events)
+                .delayElements(Duration.ofMillis(1))
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        SpoolStats stats = buffer.snapshot();
+        buffer.close();
+
+        // assert
+        assertThat(delivered.size(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(delivered.get(i).eventId(), is(String.valueOf(i)));
+        }
+        assertThat(stats.getSpoolSize(), is(0L));
+        assertThat(stats.getSpilledCount(), is(stats.getReplayedCount()));
+    }
+
+    @Test
+    public void shouldRejectASecondConsumer() {
+        // prepare
+        SpoolingBuffer buffer = new SpoolingBuffer(SpoolSettings.builder()
+                .directory(directory)
+                .build());
+        Disposable first = buffer.apply(Flux.never()).subscribe();
+
+        // execute
+        AtomicReference<Throwable> rejected = new AtomicReference<>();
+        buffer.apply(Flux.never()).subscribe(event -> { }, rejected::set);
+        first.dispose();
+        List<Event> afterRelease = buffer.apply(Flux.just(Event.builder().eventId("1").build()))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+        buffer.close();
+
+        // assert
+        assertThat(rejected.get() instanceof IllegalStateException, is(true));
+        assertThat(afterRelease.size(), is(1));
+    }
+}